@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.model.building.DefaultModelBuilderFactory;
+import org.apache.maven.model.building.DefaultModelBuildingRequest;
+import org.apache.maven.model.building.ModelBuilder;
+import org.apache.maven.model.building.ModelBuildingException;
+import org.apache.maven.model.building.ModelBuildingRequest;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark comparing the maven model building time of poms listing the class path as one <code>system</code>
+ * scoped dependency per jar with poms passing it as <code>sonar.java.libraries</code> only (see
+ * {@link SonarPomGenerator#setCompactClassPath(boolean)}). The size of the generated poms is printed during setup.
+ * Each invocation builds the effective models of all development components of the synthetic track.
+ *
+ * @author Dirk Weigenand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PomModelBuildingBenchmark {
+    /**
+     * number of development components in the synthetic track.
+     */
+    @Param({ "100" })
+    private int components;
+
+    /**
+     * number of public parts used by each development component.
+     */
+    @Param({ "20", "100" })
+    private int references;
+
+    /**
+     * number of jars per public part.
+     */
+    @Param({ "5", "20" })
+    private int jars;
+
+    /**
+     * generate poms with a compact class path.
+     */
+    @Param({ "false", "true" })
+    private boolean compactClassPath;
+
+    /**
+     * the synthetic track.
+     */
+    private SyntheticTrack track;
+
+    /**
+     * the generated poms.
+     */
+    private final List<File> poms = new ArrayList<File>();
+
+    /**
+     * maven's model builder.
+     */
+    private final ModelBuilder modelBuilder = new DefaultModelBuilderFactory().newInstance();
+
+    /**
+     * Generate the synthetic track and the poms of its development components.
+     *
+     * @throws IOException
+     *             when the track or the poms could not be written.
+     */
+    @Setup(Level.Trial)
+    public void createPoms() throws IOException {
+        final File root = Files.createTempDirectory("sonar-bench").toFile();
+        track = new SyntheticTrack(root, components, references, jars, 1, DevelopmentComponentType.Java);
+
+        final SonarPomGenerator generator =
+            new SonarPomGenerator(track.getAntHelper(), track.getDevelopmentComponentFactory(),
+                TemplateCache.getInstance());
+        generator.setReuseBuildOutput(true);
+        generator.setCompactClassPath(compactClassPath);
+
+        long size = 0;
+
+        for (final DevelopmentComponent component : track.getComponents()) {
+            final StringWriter pom = new StringWriter();
+            generator.execute(component, pom);
+
+            final File location = new File(track.getAntHelper().getBaseLocation(component), "sonar-pom.xml");
+            final byte[] content = pom.toString().getBytes("UTF-8");
+            Files.write(location.toPath(), content);
+            poms.add(location);
+            size += content.length;
+        }
+
+        System.out.println(String.format("%ncompactClassPath=%s: %d poms, %d bytes total, %d bytes average.",
+            compactClassPath, poms.size(), size, size / Math.max(1, poms.size())));
+    }
+
+    /**
+     * Remove the synthetic track.
+     */
+    @TearDown(Level.Trial)
+    public void deleteTrack() {
+        track.delete();
+    }
+
+    /**
+     * Build the effective maven models of all generated poms.
+     *
+     * @param blackhole
+     *            sink for results.
+     * @throws ModelBuildingException
+     *             when a pom is invalid.
+     */
+    @Benchmark
+    public void buildModels(final Blackhole blackhole) throws ModelBuildingException {
+        for (final File pom : poms) {
+            final DefaultModelBuildingRequest request = new DefaultModelBuildingRequest();
+            request.setPomFile(pom);
+            request.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MAVEN_3_0);
+            request.setProcessPlugins(false);
+            request.setSystemProperties(System.getProperties());
+
+            blackhole.consume(modelBuilder.build(request).getEffectiveModel());
+        }
+    }
+}
@@ -0,0 +1,362 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.AbstractBuild;
+import hudson.model.Action;
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
+import hudson.model.TaskListener;
+import hudson.tasks.Maven.MavenInstallation;
+import hudson.tools.ToolProperty;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.hudson.nwdi.DCWithJavaSourceAcceptingFilter;
+import org.arachna.netweaver.hudson.nwdi.NWDIBuild;
+import org.arachna.netweaver.hudson.nwdi.NWDIProject;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End to end benchmark of {@link SonarBuilder#perform} on a synthetic track with development components of each
+ * {@link DevelopmentComponentType}. The build is a mock, maven (used as maven daemon) or the sonar scanner is a stub
+ * script that only records its invocations. Each invocation is a single shot; after it the total wall time, the time
+ * spent per phase (summed over all development components), the number of processes launched and the number of files
+ * created or modified in the workspace and job folder are printed. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec -Djmh.args="SonarBuilderBenchmark"</code>.
+ *
+ * @author Dirk Weigenand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SonarBuilderBenchmark {
+    /**
+     * number of development components per type.
+     */
+    @Param({ "50" })
+    private int componentsPerType;
+
+    /**
+     * number of public parts used by each development component.
+     */
+    @Param({ "20" })
+    private int references;
+
+    /**
+     * number of jars per public part.
+     */
+    @Param({ "5" })
+    private int jars;
+
+    /**
+     * number of development components analysed concurrently.
+     */
+    @Param({ "1", "4" })
+    private int threads;
+
+    /**
+     * stub to analyse with: <code>maven</code> (run as maven daemon) or <code>scanner</code>.
+     */
+    @Param({ "maven", "scanner" })
+    private String tool;
+
+    /**
+     * the synthetic track.
+     */
+    private SyntheticTrack track;
+
+    /**
+     * folder of the mocked job.
+     */
+    private File jobFolder;
+
+    /**
+     * log the stub appends one line per invocation to.
+     */
+    private File invocations;
+
+    /**
+     * the stub script.
+     */
+    private File stub;
+
+    /**
+     * modification times of the files in the workspace and job folder before the current invocation.
+     */
+    private Map<File, Long> filesBefore;
+
+    /**
+     * the mocked build of the current invocation.
+     */
+    private NWDIBuild build;
+
+    /**
+     * number of the current build.
+     */
+    private int buildNumber;
+
+    /**
+     * Generate the synthetic track and the stub.
+     *
+     * @throws IOException
+     *             when the track or stub could not be written.
+     */
+    @Setup(Level.Trial)
+    public void createTrack() throws IOException {
+        final File root = Files.createTempDirectory("sonar-perform-bench").toFile();
+        track =
+            new SyntheticTrack(new File(root, "workspace"), componentsPerType, references, jars, 10,
+                DevelopmentComponentType.Java, DevelopmentComponentType.J2EEEjbModule,
+                DevelopmentComponentType.J2EEWebModule, DevelopmentComponentType.J2EE);
+        jobFolder = new File(root, "job");
+        jobFolder.mkdirs();
+        invocations = new File(root, "invocations.log");
+        stub = new File(root, "stub.sh");
+
+        final Writer writer = new FileWriter(stub);
+
+        try {
+            writer.write(String.format("#!/bin/sh%necho \"$*\" >> '%s'%nexit 0%n", invocations.getAbsolutePath()));
+        }
+        finally {
+            writer.close();
+        }
+
+        stub.setExecutable(true);
+    }
+
+    /**
+     * Remove the synthetic track and the stub.
+     */
+    @TearDown(Level.Trial)
+    public void deleteTrack() {
+        track.delete();
+        delete(jobFolder);
+        invocations.delete();
+        stub.delete();
+        track.getRoot().getParentFile().delete();
+    }
+
+    /**
+     * Create the mocked build and record the state of the workspace before an invocation.
+     *
+     * @throws Exception
+     *             when the build could not be mocked.
+     */
+    @Setup(Level.Invocation)
+    public void prepareBuild() throws Exception {
+        final NWDIProject project = Mockito.mock(NWDIProject.class);
+        Mockito.when(project.getRootDir()).thenReturn(jobFolder);
+        Mockito.when(project.getFullName()).thenReturn("sonar-perform-bench");
+
+        build = Mockito.mock(NWDIBuild.class);
+        Mockito.when(build.getNumber()).thenReturn(++buildNumber);
+        Mockito.when(build.getProject()).thenReturn(project);
+        Mockito.when(build.getWorkspace()).thenReturn(new FilePath(track.getRoot()));
+        Mockito.when(build.getDevelopmentComponentFactory()).thenReturn(track.getDevelopmentComponentFactory());
+        Mockito.when(build.getEnvironment(Mockito.any(TaskListener.class))).thenReturn(new EnvVars());
+        Mockito.doReturn(track.getComponents()).when(build)
+            .getAffectedDevelopmentComponents(Mockito.any(DCWithJavaSourceAcceptingFilter.class));
+
+        invocations.delete();
+        filesBefore = listFiles();
+    }
+
+    /**
+     * Print the phases, process launches and touched files of the finished invocation.
+     *
+     * @throws IOException
+     *             when the invocation log could not be read.
+     */
+    @TearDown(Level.Invocation)
+    public void report() throws IOException {
+        final ArgumentCaptor<Action> actions = ArgumentCaptor.forClass(Action.class);
+        Mockito.verify(build, Mockito.atLeastOnce()).addAction(actions.capture());
+
+        long classPathResolution = 0;
+        long templateRendering = 0;
+        long pomWriting = 0;
+        long analysis = 0;
+        long total = 0;
+
+        for (final Action action : actions.getAllValues()) {
+            if (action instanceof SonarMetricsAction) {
+                final SonarMetricsAction metrics = (SonarMetricsAction)action;
+                total = metrics.getDuration();
+
+                for (final DevelopmentComponentTiming timing : metrics.getTimings()) {
+                    classPathResolution += timing.getClassPathResolution();
+                    templateRendering += timing.getTemplateRendering();
+                    pomWriting += timing.getPomWriting();
+                    analysis += timing.getMaven();
+                }
+            }
+        }
+
+        final int launches =
+            invocations.isFile() ? Files.readAllLines(invocations.toPath(), Charset.defaultCharset()).size() : 0;
+        int touched = 0;
+
+        for (final Map.Entry<File, Long> file : listFiles().entrySet()) {
+            final Long before = filesBefore.get(file.getKey());
+
+            if (before == null || before < file.getValue()) {
+                touched++;
+            }
+        }
+
+        System.out.println(String.format(
+            "%nperform: %d ms wall time; class path %d ms, template %d ms, pom writing %d ms, %s %d ms "
+                + "(summed over development components); %d process launches; %d files touched", total,
+            classPathResolution, templateRendering, pomWriting, tool, analysis, launches, touched));
+    }
+
+    /**
+     * Run the sonar build step on the synthetic track.
+     *
+     * @return the result of the build step.
+     * @throws Exception
+     *             when the build step failed.
+     */
+    @Benchmark
+    public boolean perform() throws Exception {
+        final BuildListener listener = new StreamBuildListener(new NullOutputStream(), Charset.defaultCharset());
+        final boolean scanner = "scanner".equals(tool);
+        final SonarBuilder builder =
+            new BenchmarkSonarBuilder(threads, scanner ? "" : stub.getAbsolutePath(), scanner ? stub.getAbsolutePath()
+                : "", track.getAntHelper());
+
+        return builder.perform(build, new Launcher.LocalLauncher(listener), listener);
+    }
+
+    /**
+     * Returns the modification times of the files in the workspace and the job folder.
+     */
+    private Map<File, Long> listFiles() {
+        final Map<File, Long> files = new HashMap<File, Long>();
+        listFiles(track.getRoot(), files);
+        listFiles(jobFolder, files);
+
+        return files;
+    }
+
+    private void listFiles(final File folder, final Map<File, Long> files) {
+        final File[] children = folder.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                if (child.isDirectory()) {
+                    listFiles(child, files);
+                }
+                else {
+                    files.put(child, child.lastModified());
+                }
+            }
+        }
+    }
+
+    private void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    /**
+     * {@link SonarBuilder} resolving locations in the synthetic track and using a stub maven installation instead of
+     * looking up the configuration of a running Jenkins.
+     */
+    private static final class BenchmarkSonarBuilder extends SonarBuilder {
+        /**
+         * helper resolving locations in the synthetic track.
+         */
+        private final AntHelper antHelper;
+
+        /**
+         * throttle without limit.
+         */
+        private final AnalysisThrottle throttle = new AnalysisThrottle();
+
+        BenchmarkSonarBuilder(final int threads, final String mavenDaemon, final String sonarScanner,
+            final AntHelper antHelper) {
+            setNumberOfThreads(threads);
+            setMavenDaemon(mavenDaemon);
+            setSonarScanner(sonarScanner);
+            this.antHelper = antHelper;
+        }
+
+        @Override
+        AntHelper createAntHelper(final String workspace, final DevelopmentComponentFactory dcFactory) {
+            return antHelper;
+        }
+
+        @Override
+        AnalysisThrottle getThrottle() {
+            return throttle;
+        }
+
+        @Override
+        ScannerCache createScannerCache(final AbstractBuild<?, ?> build, final String workspace) {
+            return null;
+        }
+
+        @Override
+        MavenInstallation getRequiredMavenInstallation(final Launcher launcher) {
+            return new MavenInstallation("stub", System.getProperty("java.io.tmpdir"),
+                new ArrayList<ToolProperty<?>>());
+        }
+    }
+
+    /**
+     * Stream discarding everything written to it.
+     */
+    private static final class NullOutputStream extends OutputStream {
+        @Override
+        public void write(final int b) {
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) {
+        }
+    }
+}
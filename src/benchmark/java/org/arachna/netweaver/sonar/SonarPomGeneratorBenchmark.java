@@ -0,0 +1,194 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH benchmark for {@link SonarPomGenerator} on a synthetic track. Each invocation processes all development
+ * components of the track, so the reported throughput is in tracks per second. Run with
+ * <code>mvn -Pbenchmark test-compile exec:exec</code>; the default arguments add the GC profiler for allocation
+ * rates.
+ *
+ * @author Dirk Weigenand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SonarPomGeneratorBenchmark {
+    /**
+     * number of development components in the synthetic track.
+     */
+    @Param({ "100", "1000" })
+    private int components;
+
+    /**
+     * number of public parts used by each development component.
+     */
+    @Param({ "20" })
+    private int references;
+
+    /**
+     * number of jars per public part.
+     */
+    @Param({ "5" })
+    private int jars;
+
+    /**
+     * write poms using {@link StreamingPomWriter} instead of the velocity template.
+     */
+    @Param({ "false", "true" })
+    private boolean streaming;
+
+    /**
+     * the synthetic track.
+     */
+    private SyntheticTrack track;
+
+    /**
+     * build helper resolving locations in the synthetic track.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * generator sharing one class path index across invocations (i.e. a warm index).
+     */
+    private SonarPomGenerator generator;
+
+    /**
+     * Generate the synthetic track.
+     *
+     * @throws IOException
+     *             when the track could not be written.
+     */
+    @Setup(Level.Trial)
+    public void createTrack() throws IOException {
+        final File root = Files.createTempDirectory("sonar-bench").toFile();
+        track = new SyntheticTrack(root, components, references, jars, 10, DevelopmentComponentType.Java);
+        antHelper = track.getAntHelper();
+        generator = createGenerator();
+    }
+
+    /**
+     * Remove the synthetic track.
+     */
+    @TearDown(Level.Trial)
+    public void deleteTrack() {
+        track.delete();
+    }
+
+    /**
+     * Resolve the class paths of all development components with a fresh (cold) class path index.
+     *
+     * @param blackhole
+     *            sink for results.
+     */
+    @Benchmark
+    public void createClassPathCold(final Blackhole blackhole) {
+        final SonarPomGenerator coldGenerator = createGenerator();
+
+        for (final DevelopmentComponent component : track.getComponents()) {
+            blackhole.consume(coldGenerator.createClassPath(component));
+        }
+    }
+
+    /**
+     * Resolve the class paths of all development components using a warm class path index.
+     *
+     * @param blackhole
+     *            sink for results.
+     */
+    @Benchmark
+    public void createClassPathWarm(final Blackhole blackhole) {
+        for (final DevelopmentComponent component : track.getComponents()) {
+            blackhole.consume(generator.createClassPath(component));
+        }
+    }
+
+    /**
+     * Create the velocity contexts of all development components.
+     *
+     * @param blackhole
+     *            sink for results.
+     */
+    @Benchmark
+    public void createContext(final Blackhole blackhole) {
+        for (final DevelopmentComponent component : track.getComponents()) {
+            blackhole.consume(generator.createContext(component, new DevelopmentComponentTiming(component)));
+        }
+    }
+
+    /**
+     * Render the poms of all development components.
+     *
+     * @param blackhole
+     *            sink for results.
+     * @throws IOException
+     *             when rendering failed.
+     */
+    @Benchmark
+    public void execute(final Blackhole blackhole) throws IOException {
+        for (final DevelopmentComponent component : track.getComponents()) {
+            final CountingWriter writer = new CountingWriter();
+            generator.execute(component, writer);
+            blackhole.consume(writer.count);
+        }
+    }
+
+    private SonarPomGenerator createGenerator() {
+        final SonarPomGenerator pomGenerator =
+            new SonarPomGenerator(antHelper, track.getDevelopmentComponentFactory(), TemplateCache.getInstance());
+        pomGenerator.setStreamingPomWriter(streaming);
+
+        return pomGenerator;
+    }
+
+    /**
+     * Writer discarding its input while counting characters.
+     */
+    private static final class CountingWriter extends Writer {
+        /**
+         * number of characters written.
+         */
+        private long count;
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,265 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+
+/**
+ * Synthetic NWDI track on disk used by benchmarks: a development configuration with one software component holding
+ * the requested number of development components. Each development component has java sources, build output and a
+ * public part containing jars and uses the public parts of a number of other development components.
+ *
+ * @author Dirk Weigenand
+ */
+final class SyntheticTrack {
+    /**
+     * vendor of generated development components.
+     */
+    static final String VENDOR = "example.com";
+
+    /**
+     * name of the public part each development component provides.
+     */
+    static final String PUBLIC_PART = "api";
+
+    /**
+     * root folder of the synthetic workspace.
+     */
+    private final File root;
+
+    /**
+     * registry of generated development components.
+     */
+    private final DevelopmentComponentFactory dcFactory = new DevelopmentComponentFactory();
+
+    /**
+     * generated development components.
+     */
+    private final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+    /**
+     * the development configuration containing the generated development components.
+     */
+    private final DevelopmentConfiguration configuration = new DevelopmentConfiguration("DI_BENCH_D");
+
+    /**
+     * Generate a synthetic track.
+     *
+     * @param root
+     *            root folder of the synthetic workspace.
+     * @param numberOfComponents
+     *            number of development components per type.
+     * @param referencesPerComponent
+     *            number of public parts used by each development component.
+     * @param jarsPerPublicPart
+     *            number of jars in each public part.
+     * @param sourcesPerComponent
+     *            number of java source files per development component.
+     * @param types
+     *            types of development components to generate.
+     * @throws IOException
+     *             when the workspace could not be written.
+     */
+    SyntheticTrack(final File root, final int numberOfComponents, final int referencesPerComponent,
+        final int jarsPerPublicPart, final int sourcesPerComponent, final DevelopmentComponentType... types)
+        throws IOException {
+        this.root = root;
+
+        final Compartment compartment = Compartment.create(VENDOR, "SC_BENCH", CompartmentState.Source, "benchmark");
+        configuration.add(compartment);
+
+        for (final DevelopmentComponentType type : types) {
+            for (int i = 0; i < numberOfComponents; i++) {
+                final DevelopmentComponent component =
+                    dcFactory.create(VENDOR, String.format("%s/dc%05d", type.toString().toLowerCase(), i), type);
+                compartment.add(component);
+                components.add(component);
+            }
+        }
+
+        final AntHelper antHelper = getAntHelper();
+
+        for (int i = 0; i < components.size(); i++) {
+            final DevelopmentComponent component = components.get(i);
+
+            for (int r = 1; r <= referencesPerComponent && r < components.size(); r++) {
+                final DevelopmentComponent used = components.get((i + r * 7) % components.size());
+
+                if (used != component) {
+                    component.add(new PublicPartReference(used.getVendor(), used.getName(), PUBLIC_PART));
+                }
+            }
+
+            createSources(new File(antHelper.getBaseLocation(component), getSourceFolder(component)),
+                sourcesPerComponent);
+            createJars(new File(antHelper.getBaseLocation(component, PUBLIC_PART)), component, jarsPerPublicPart);
+            createBuildOutput(new File(antHelper.getBaseLocation(component), "gen/default/classes"), component);
+        }
+    }
+
+    /**
+     * Returns the source folder of the given development component relative to its base location. The folder is the
+     * one sonar analyses for the development component's type.
+     *
+     * @param component
+     *            development component to get the source folder for.
+     * @return the source folder of the given development component.
+     */
+    static String getSourceFolder(final DevelopmentComponent component) {
+        final DevelopmentComponentType type = component.getType();
+
+        if (DevelopmentComponentType.J2EEEjbModule.equals(type)) {
+            return "ejbModule";
+        }
+
+        if (DevelopmentComponentType.J2EEWebModule.equals(type) || DevelopmentComponentType.J2EE.equals(type)) {
+            return "source";
+        }
+
+        return "src/packages";
+    }
+
+    /**
+     * @return registry of generated development components.
+     */
+    DevelopmentComponentFactory getDevelopmentComponentFactory() {
+        return dcFactory;
+    }
+
+    /**
+     * @return the generated development components.
+     */
+    List<DevelopmentComponent> getComponents() {
+        return Collections.unmodifiableList(components);
+    }
+
+    /**
+     * @return the root folder of the synthetic workspace.
+     */
+    File getRoot() {
+        return root;
+    }
+
+    /**
+     * @return an {@link AntHelper} resolving locations inside the synthetic workspace.
+     */
+    AntHelper getAntHelper() {
+        return new SyntheticAntHelper(root, dcFactory);
+    }
+
+    /**
+     * Remove the synthetic workspace.
+     */
+    void delete() {
+        delete(root);
+    }
+
+    private void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+
+    private void createSources(final File folder, final int count) throws IOException {
+        folder.mkdirs();
+
+        for (int i = 0; i < count; i++) {
+            final Writer writer = new FileWriter(new File(folder, String.format("Class%d.java", i)));
+
+            try {
+                writer.write(String.format("package packages;%npublic class Class%d {%n}%n", i));
+            }
+            finally {
+                writer.close();
+            }
+        }
+    }
+
+    private void createBuildOutput(final File folder, final DevelopmentComponent component) throws IOException {
+        new File(folder, "packages").mkdirs();
+        new FileOutputStream(new File(folder, "packages/Class0.class")).close();
+        component.setOutputFolder(folder.getAbsolutePath());
+    }
+
+    private void createJars(final File folder, final DevelopmentComponent component, final int count)
+        throws IOException {
+        folder.mkdirs();
+
+        for (int i = 0; i < count; i++) {
+            final ZipOutputStream jar =
+                new ZipOutputStream(new FileOutputStream(new File(folder, String.format("%s~%s~%d.jar",
+                    component.getVendor(), component.getName().replace('/', '~'), i))));
+
+            try {
+                jar.putNextEntry(new ZipEntry("META-INF/MANIFEST.MF"));
+                jar.write("Manifest-Version: 1.0\n".getBytes("UTF-8"));
+                jar.closeEntry();
+            }
+            finally {
+                jar.close();
+            }
+        }
+    }
+
+    /**
+     * {@link AntHelper} resolving locations of development components and public parts inside the synthetic
+     * workspace.
+     */
+    private static final class SyntheticAntHelper extends AntHelper {
+        /**
+         * root folder of the synthetic workspace.
+         */
+        private final File root;
+
+        SyntheticAntHelper(final File root, final DevelopmentComponentFactory dcFactory) {
+            super(root.getAbsolutePath(), dcFactory);
+            this.root = root;
+        }
+
+        @Override
+        public String getBaseLocation(final DevelopmentComponent component) {
+            return String.format("%s/%s/%s/_comp", root.getAbsolutePath(), component.getVendor(), component.getName());
+        }
+
+        @Override
+        public String getBaseLocation(final DevelopmentComponent component, final String publicPart) {
+            return String.format("%s/gen/default/public/%s/lib/java", getBaseLocation(component), publicPart);
+        }
+
+        @Override
+        public List<String> createSourceFileSets(final DevelopmentComponent component) {
+            return Arrays.asList(getBaseLocation(component) + "/" + getSourceFolder(component));
+        }
+
+        @Override
+        public List<String> createResourceFileSets(final DevelopmentComponent component) {
+            return Collections.emptyList();
+        }
+    }
+}
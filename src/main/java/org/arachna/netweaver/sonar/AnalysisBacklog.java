@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.lang.StringUtils;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+
+/**
+ * Persistent list of development components whose analysis was deferred because the time budget of a build was
+ * exhausted. The development components are analysed first by the next build.
+ *
+ * The same format records the development components analysed partially (see {@link ChangedFiles}) until their next
+ * complete analysis.
+ *
+ * @author Dirk Weigenand
+ */
+final class AnalysisBacklog {
+    /**
+     * encoding of the backlog file.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * file the backlog is persisted to.
+     */
+    private final File file;
+
+    /**
+     * Create a backlog persisted to the given file.
+     *
+     * @param file
+     *            file the backlog is persisted to.
+     */
+    AnalysisBacklog(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the development components deferred by previous builds.
+     *
+     * @param dcFactory
+     *            registry of development components of the current build.
+     * @return the deferred development components known to the given registry in the order they were deferred.
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    List<DevelopmentComponent> load(final DevelopmentComponentFactory dcFactory) throws IOException {
+        final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+        if (file.exists()) {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+
+            try {
+                String line;
+
+                while ((line = reader.readLine()) != null) {
+                    final int separator = line.indexOf(':');
+
+                    if (separator > 0) {
+                        final DevelopmentComponent component =
+                            dcFactory.get(line.substring(0, separator), line.substring(separator + 1));
+
+                        if (component != null) {
+                            components.add(component);
+                        }
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+
+        return components;
+    }
+
+    /**
+     * Persist the given deferred development components replacing the previous backlog.
+     *
+     * @param components
+     *            development components whose analysis was deferred.
+     * @throws IOException
+     *             when the file could not be written.
+     */
+    void save(final Collection<DevelopmentComponent> components) throws IOException {
+        if (components.isEmpty()) {
+            if (file.exists() && !file.delete()) {
+                throw new IOException(String.format("Could not delete %s.", file));
+            }
+
+            return;
+        }
+
+        final List<String> lines = new ArrayList<String>(components.size());
+
+        for (final DevelopmentComponent component : components) {
+            lines.add(String.format("%s:%s", component.getVendor(), component.getName()));
+        }
+
+        final Writer writer = new OutputStreamWriter(new FileOutputStream(file), UTF8);
+
+        try {
+            writer.write(StringUtils.join(lines, '\n'));
+            writer.write('\n');
+        }
+        finally {
+            writer.close();
+        }
+    }
+}
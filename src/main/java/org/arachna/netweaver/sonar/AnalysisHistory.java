@@ -0,0 +1,208 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.model.AbstractBuild;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Durations of the sonar analyses of development components in previous builds.
+ *
+ * The duration of a development component is taken from the most recent {@link SonarMetricsAction} that contains a
+ * completed analysis of it. Development components without history are expected to take as long as the slowest known
+ * one, so new or rarely changed development components are started early rather than late.
+ *
+ * @author Dirk Weigenand
+ */
+final class AnalysisHistory {
+    /**
+     * durations of analyses in milliseconds mapped by the qualified name of the development component.
+     */
+    private final Map<String, Long> durations = new HashMap<String, Long>();
+
+    /**
+     * the longest known duration.
+     */
+    private long longest;
+
+    /**
+     * Collect the durations of analyses from builds preceding the given one.
+     *
+     * @param build
+     *            the current build.
+     * @param depth
+     *            maximum number of previous builds to examine.
+     */
+    AnalysisHistory(final AbstractBuild<?, ?> build, final int depth) {
+        AbstractBuild<?, ?> previous = build.getPreviousBuild();
+
+        for (int i = 0; i < depth && previous != null; i++) {
+            final SonarMetricsAction action = previous.getAction(SonarMetricsAction.class);
+
+            if (action != null) {
+                for (final DevelopmentComponentTiming timing : action.getTimings()) {
+                    if (isCompleted(timing) && !durations.containsKey(timing.getQualifiedName())) {
+                        durations.put(timing.getQualifiedName(), timing.getTotal());
+                        longest = Math.max(longest, timing.getTotal());
+                    }
+                }
+            }
+
+            previous = previous.getPreviousBuild();
+        }
+    }
+
+    /**
+     * Create a history from the given durations.
+     *
+     * @param durations
+     *            durations of analyses in milliseconds mapped by <code>vendor:name</code> of development component.
+     */
+    AnalysisHistory(final Map<String, Long> durations) {
+        for (final Map.Entry<String, Long> duration : durations.entrySet()) {
+            this.durations.put(duration.getKey(), duration.getValue());
+            longest = Math.max(longest, duration.getValue());
+        }
+    }
+
+    private boolean isCompleted(final DevelopmentComponentTiming timing) {
+        return DevelopmentComponentTiming.Status.SUCCESS.equals(timing.getStatus())
+            || DevelopmentComponentTiming.Status.FAILURE.equals(timing.getStatus());
+    }
+
+    /**
+     * Returns whether a duration of an analysis of the given development component is known.
+     *
+     * @param component
+     *            development component to look up.
+     * @return <code>true</code> when the development component was analysed in one of the examined builds.
+     */
+    boolean isKnown(final DevelopmentComponent component) {
+        return durations.containsKey(getQualifiedName(component));
+    }
+
+    /**
+     * Returns the expected duration of the analysis of the given development component.
+     *
+     * @param component
+     *            development component to look up.
+     * @return the duration of the last analysis of the development component in milliseconds or the longest known
+     *         duration when it was not analysed in one of the examined builds.
+     */
+    long getExpectedDuration(final DevelopmentComponent component) {
+        final Long duration = durations.get(getQualifiedName(component));
+
+        return duration == null ? longest : duration;
+    }
+
+    /**
+     * Sort the given development components by their expected duration, longest first (longest processing time first
+     * scheduling). Development components with equal expected durations keep their relative order.
+     *
+     * @param components
+     *            development components to sort.
+     * @return the given development components ordered by expected duration, longest first.
+     */
+    List<DevelopmentComponent> sortLongestFirst(final Collection<DevelopmentComponent> components) {
+        return sortLongestFirst(components, Collections.<DevelopmentComponent> emptySet());
+    }
+
+    /**
+     * Sort the given development components by their expected duration, longest first, scheduling the prioritized
+     * development components before all others.
+     *
+     * @param components
+     *            development components to sort.
+     * @param prioritized
+     *            development components to schedule first (i.e. those deferred by previous builds).
+     * @return the prioritized development components followed by the others, each ordered by expected duration,
+     *         longest first.
+     */
+    List<DevelopmentComponent> sortLongestFirst(final Collection<DevelopmentComponent> components,
+        final Collection<DevelopmentComponent> prioritized) {
+        final List<DevelopmentComponent> sorted = new ArrayList<DevelopmentComponent>(components);
+        Collections.sort(sorted, new Comparator<DevelopmentComponent>() {
+            @Override
+            public int compare(final DevelopmentComponent o1, final DevelopmentComponent o2) {
+                final boolean first = prioritized.contains(o1);
+
+                if (first != prioritized.contains(o2)) {
+                    return first ? -1 : 1;
+                }
+
+                return Long.valueOf(getExpectedDuration(o2)).compareTo(getExpectedDuration(o1));
+            }
+        });
+
+        return sorted;
+    }
+
+    /**
+     * Partition the given development components into the given number of shares with about equal expected duration.
+     * Development components are assigned longest first to the share with the least expected duration so far.
+     *
+     * @param components
+     *            development components to partition.
+     * @param shares
+     *            number of shares.
+     * @return the shares, each ordered longest first. Shares may be empty when there are fewer development components
+     *         than shares.
+     */
+    List<List<DevelopmentComponent>> partition(final Collection<DevelopmentComponent> components, final int shares) {
+        return partition(components, shares, Collections.<DevelopmentComponent> emptySet());
+    }
+
+    /**
+     * Partition the given development components into the given number of shares with about equal expected duration.
+     * The prioritized development components are assigned first and thus lead their shares.
+     *
+     * @param components
+     *            development components to partition.
+     * @param shares
+     *            number of shares.
+     * @param prioritized
+     *            development components to schedule first (i.e. those deferred by previous builds).
+     * @return the shares, each starting with its prioritized development components. Shares may be empty when there
+     *         are fewer development components than shares.
+     */
+    List<List<DevelopmentComponent>> partition(final Collection<DevelopmentComponent> components, final int shares,
+        final Collection<DevelopmentComponent> prioritized) {
+        final List<List<DevelopmentComponent>> partitions = new ArrayList<List<DevelopmentComponent>>(shares);
+        final long[] loads = new long[shares];
+
+        for (int i = 0; i < shares; i++) {
+            partitions.add(new ArrayList<DevelopmentComponent>());
+        }
+
+        for (final DevelopmentComponent component : sortLongestFirst(components, prioritized)) {
+            int leastLoaded = 0;
+
+            for (int i = 1; i < shares; i++) {
+                if (loads[i] < loads[leastLoaded]
+                    || loads[i] == loads[leastLoaded]
+                    && partitions.get(i).size() < partitions.get(leastLoaded).size()) {
+                    leastLoaded = i;
+                }
+            }
+
+            partitions.get(leastLoaded).add(component);
+            loads[leastLoaded] += getExpectedDuration(component);
+        }
+
+        return partitions;
+    }
+
+    private String getQualifiedName(final DevelopmentComponent component) {
+        return String.format("%s:%s", component.getVendor(), component.getName());
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.Extension;
+import hudson.model.AbstractDescribableImpl;
+import hudson.model.Descriptor;
+import hudson.util.FormValidation;
+import hudson.util.ListBoxModel;
+
+import java.util.Collection;
+
+import org.apache.commons.lang.StringUtils;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+/**
+ * Resource options for the analysis of development components of one type (or of all types when no type is given):
+ * options for the maven or sonar scanner JVM and the surefire fork and parallelism settings used when tests are run.
+ *
+ * @author Dirk Weigenand
+ */
+public final class AnalysisOptions extends AbstractDescribableImpl<AnalysisOptions> {
+    /**
+     * options used when none are configured.
+     */
+    static final AnalysisOptions DEFAULT = new AnalysisOptions("", "", "", "", 0, "");
+
+    /**
+     * type of development components the options apply to (empty for all types).
+     */
+    private final String componentType;
+
+    /**
+     * options for the maven or sonar scanner JVM (e.g. heap size and garbage collector).
+     */
+    private final String jvmOptions;
+
+    /**
+     * surefire's <code>forkCount</code> (e.g. <code>1</code> or <code>0.5C</code>).
+     */
+    private final String surefireForkCount;
+
+    /**
+     * surefire's <code>parallel</code> mode (e.g. <code>classes</code> or <code>methods</code>).
+     */
+    private final String surefireParallel;
+
+    /**
+     * surefire's <code>threadCount</code> used with {@link #surefireParallel}.
+     */
+    private final int surefireThreadCount;
+
+    /**
+     * surefire's <code>argLine</code> for the forked test JVMs.
+     */
+    private final String surefireArgLine;
+
+    /**
+     * Data bound constructor.
+     *
+     * @param componentType
+     *            type of development components the options apply to (empty for all types).
+     * @param jvmOptions
+     *            options for the maven or sonar scanner JVM.
+     * @param surefireForkCount
+     *            surefire's <code>forkCount</code>.
+     * @param surefireParallel
+     *            surefire's <code>parallel</code> mode.
+     * @param surefireThreadCount
+     *            surefire's <code>threadCount</code>.
+     * @param surefireArgLine
+     *            surefire's <code>argLine</code>.
+     */
+    @DataBoundConstructor
+    public AnalysisOptions(final String componentType, final String jvmOptions, final String surefireForkCount,
+        final String surefireParallel, final int surefireThreadCount, final String surefireArgLine) {
+        this.componentType = StringUtils.trimToEmpty(componentType);
+        this.jvmOptions = StringUtils.trimToEmpty(jvmOptions);
+        this.surefireForkCount = StringUtils.trimToEmpty(surefireForkCount);
+        this.surefireParallel = StringUtils.trimToEmpty(surefireParallel);
+        this.surefireThreadCount = surefireThreadCount;
+        this.surefireArgLine = StringUtils.trimToEmpty(surefireArgLine);
+    }
+
+    /**
+     * Select the options for the given development component: the options configured for its type, otherwise the
+     * options configured for all types, otherwise {@link #DEFAULT}.
+     *
+     * @param options
+     *            the configured options (may be <code>null</code>).
+     * @param component
+     *            development component to select options for (<code>null</code> selects the options for all types).
+     * @return the options to use for the given development component.
+     */
+    static AnalysisOptions select(final Collection<AnalysisOptions> options, final DevelopmentComponent component) {
+        AnalysisOptions selected = DEFAULT;
+
+        if (options != null) {
+            for (final AnalysisOptions candidate : options) {
+                if (candidate.componentType.isEmpty()) {
+                    if (selected == DEFAULT) {
+                        selected = candidate;
+                    }
+                }
+                else if (component != null && candidate.componentType.equals(component.getType().toString())) {
+                    return candidate;
+                }
+            }
+        }
+
+        return selected;
+    }
+
+    /**
+     * @return type of development components the options apply to (empty for all types).
+     */
+    public String getComponentType() {
+        return componentType;
+    }
+
+    /**
+     * @return options for the maven or sonar scanner JVM.
+     */
+    public String getJvmOptions() {
+        return jvmOptions;
+    }
+
+    /**
+     * @return surefire's <code>forkCount</code>.
+     */
+    public String getSurefireForkCount() {
+        return surefireForkCount;
+    }
+
+    /**
+     * @return surefire's <code>parallel</code> mode.
+     */
+    public String getSurefireParallel() {
+        return surefireParallel;
+    }
+
+    /**
+     * @return surefire's <code>threadCount</code>.
+     */
+    public int getSurefireThreadCount() {
+        return surefireThreadCount;
+    }
+
+    /**
+     * @return surefire's <code>argLine</code>.
+     */
+    public String getSurefireArgLine() {
+        return surefireArgLine;
+    }
+
+    /**
+     * Descriptor for {@link AnalysisOptions}.
+     */
+    @Extension
+    public static final class DescriptorImpl extends Descriptor<AnalysisOptions> {
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String getDisplayName() {
+            return "Analysis options";
+        }
+
+        /**
+         * @return the development component types options can be configured for.
+         */
+        public ListBoxModel doFillComponentTypeItems() {
+            final ListBoxModel items = new ListBoxModel();
+            items.add("All types", "");
+
+            for (final DevelopmentComponentType type : new DevelopmentComponentType[] {
+                DevelopmentComponentType.Java, DevelopmentComponentType.J2EEEjbModule,
+                DevelopmentComponentType.J2EEWebModule, DevelopmentComponentType.J2EE }) {
+                items.add(type.toString());
+            }
+
+            return items;
+        }
+
+        /**
+         * @return surefire's parallel modes.
+         */
+        public ListBoxModel doFillSurefireParallelItems() {
+            final ListBoxModel items = new ListBoxModel();
+            items.add("none", "");
+
+            for (final String mode : new String[] { "classes", "methods", "both", "suites", "all" }) {
+                items.add(mode);
+            }
+
+            return items;
+        }
+
+        /**
+         * Validate surefire's thread count.
+         *
+         * @param value
+         *            the thread count entered by the user.
+         * @return the result of the validation.
+         */
+        public FormValidation doCheckSurefireThreadCount(@QueryParameter final String value) {
+            return FormValidation.validateNonNegativeInteger(value);
+        }
+    }
+}
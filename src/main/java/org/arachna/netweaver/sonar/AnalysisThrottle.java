@@ -0,0 +1,267 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.Util;
+import hudson.model.TaskListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Limits the number of concurrently running sonar analyses (maven or sonar scanner processes) per node across all
+ * jobs.
+ *
+ * Free slots are granted to the waiting analysis of the job running the fewest analyses on the node, waiting analyses
+ * of the same job in the order they asked for a slot. A job analysing many development components thus can not
+ * starve other jobs waiting for the same node. Slots are counted even without a limit so that changing the limit takes
+ * the analyses already running into account.
+ *
+ * @author Dirk Weigenand
+ */
+final class AnalysisThrottle {
+    /**
+     * slots mapped by node name.
+     */
+    private final ConcurrentMap<String, NodeSlots> nodes = new ConcurrentHashMap<String, NodeSlots>();
+
+    /**
+     * maximum number of concurrent analyses per node (<code>0</code> for no limit).
+     */
+    private volatile int limit;
+
+    /**
+     * Set the maximum number of concurrent analyses per node. Analyses running when the limit is lowered keep their
+     * slots, no further slots are granted until fewer analyses than the new limit are running. Raising the limit
+     * grants slots to waiting analyses immediately.
+     *
+     * @param limit
+     *            maximum number of concurrent analyses per node (<code>0</code> for no limit).
+     */
+    void setLimit(final int limit) {
+        this.limit = limit;
+
+        for (final NodeSlots slots : nodes.values()) {
+            slots.limitChanged();
+        }
+    }
+
+    /**
+     * @return maximum number of concurrent analyses per node (<code>0</code> for no limit).
+     */
+    int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Acquire a slot for running an analysis on the given node, waiting until one becomes available. The time spent
+     * waiting is written to the given listener.
+     *
+     * @param node
+     *            name of the node the analysis runs on.
+     * @param job
+     *            full name of the job the analysis belongs to.
+     * @param listener
+     *            listener to log waiting to.
+     * @return the acquired slot. It must be released when the analysis finished.
+     * @throws InterruptedException
+     *             when the build was aborted while waiting.
+     */
+    Slot acquire(final String node, final String job, final TaskListener listener) throws InterruptedException {
+        NodeSlots slots = nodes.get(node);
+
+        if (slots == null) {
+            final NodeSlots created = new NodeSlots(node);
+            slots = nodes.putIfAbsent(node, created);
+
+            if (slots == null) {
+                slots = created;
+            }
+        }
+
+        return slots.acquire(job, listener);
+    }
+
+    /**
+     * Returns the number of analyses running on the given node.
+     *
+     * @param node
+     *            name of the node.
+     * @return number of analyses holding a slot on the given node.
+     */
+    int getRunning(final String node) {
+        final NodeSlots slots = nodes.get(node);
+
+        return slots == null ? 0 : slots.getRunning();
+    }
+
+    private static String getDisplayName(final String node) {
+        return node == null || node.isEmpty() ? "master" : node;
+    }
+
+    /**
+     * The slots of one node.
+     */
+    private final class NodeSlots {
+        /**
+         * name of the node.
+         */
+        private final String node;
+
+        /**
+         * analyses waiting for a slot in the order they asked for one.
+         */
+        private final List<Waiter> waiting = new ArrayList<Waiter>();
+
+        /**
+         * number of running analyses mapped by job.
+         */
+        private final Map<String, Integer> runningByJob = new HashMap<String, Integer>();
+
+        /**
+         * number of running analyses.
+         */
+        private int running;
+
+        NodeSlots(final String node) {
+            this.node = node;
+        }
+
+        synchronized Slot acquire(final String job, final TaskListener listener) throws InterruptedException {
+            final Waiter waiter = new Waiter(job);
+            waiting.add(waiter);
+
+            try {
+                if (!isGranted(waiter)) {
+                    final long start = System.currentTimeMillis();
+                    listener.getLogger().println(
+                        String.format("Waiting for one of %d sonar analysis slots on %s.", limit,
+                            getDisplayName(node)));
+
+                    while (!isGranted(waiter)) {
+                        wait();
+                    }
+
+                    listener.getLogger().println(
+                        String.format("Waited %s for a sonar analysis slot on %s.",
+                            Util.getTimeSpanString(System.currentTimeMillis() - start), getDisplayName(node)));
+                }
+            }
+            finally {
+                waiting.remove(waiter);
+                // either this analysis got its slot or gave up waiting, both may change the next waiter.
+                notifyAll();
+            }
+
+            running++;
+            runningByJob.put(job, getRunning(job) + 1);
+
+            return new Slot(this, job);
+        }
+
+        synchronized void release(final String job) {
+            running--;
+
+            final int remaining = getRunning(job) - 1;
+
+            if (remaining > 0) {
+                runningByJob.put(job, remaining);
+            }
+            else {
+                runningByJob.remove(job);
+            }
+
+            notifyAll();
+        }
+
+        synchronized void limitChanged() {
+            notifyAll();
+        }
+
+        synchronized int getRunning() {
+            return running;
+        }
+
+        /**
+         * Determine whether the given waiting analysis may run now: a slot is free and no analysis of a job running
+         * fewer analyses (or of the same job asking earlier) is waiting.
+         */
+        private boolean isGranted(final Waiter waiter) {
+            final int permits = limit;
+
+            if (permits > 0 && running >= permits) {
+                return false;
+            }
+
+            Waiter next = null;
+
+            for (final Waiter candidate : waiting) {
+                if (next == null || getRunning(candidate.job) < getRunning(next.job)) {
+                    next = candidate;
+                }
+            }
+
+            return next == waiter;
+        }
+
+        private int getRunning(final String job) {
+            final Integer count = runningByJob.get(job);
+
+            return count == null ? 0 : count;
+        }
+    }
+
+    /**
+     * An analysis waiting for a slot.
+     */
+    private static final class Waiter {
+        /**
+         * full name of the job the analysis belongs to.
+         */
+        private final String job;
+
+        Waiter(final String job) {
+            this.job = job;
+        }
+    }
+
+    /**
+     * A slot for running an analysis.
+     */
+    static final class Slot {
+        /**
+         * slots of the node the slot was acquired on.
+         */
+        private final NodeSlots slots;
+
+        /**
+         * full name of the job the slot was acquired for.
+         */
+        private final String job;
+
+        /**
+         * indicates whether the slot was released already.
+         */
+        private boolean released;
+
+        private Slot(final NodeSlots slots, final String job) {
+            this.slots = slots;
+            this.job = job;
+        }
+
+        /**
+         * Release the slot. Releasing a slot more than once has no effect.
+         */
+        synchronized void release() {
+            if (!released) {
+                released = true;
+                slots.release(job);
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.EditType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * The files changed by the activities of a build mapped to the development components they belong to.
+ *
+ * Paths of changed files are taken from the build's change set. A path belongs to a development component when it
+ * contains the development component's folder (<code>vendor/name/_comp/</code>). Paths of files are stored relative to
+ * the development component's base location.
+ *
+ * Deleted files cannot be expressed as inclusions: restricting the analysis to the remaining changed files would keep
+ * the deleted file's results on the server. Development components containing deleted files are therefore analysed
+ * completely.
+ *
+ * @author Dirk Weigenand
+ */
+final class ChangedFiles {
+    /**
+     * paths of changed files relative to the development component's base location mapped by development component.
+     */
+    private final Map<DevelopmentComponent, Set<String>> changedFiles = new HashMap<DevelopmentComponent, Set<String>>();
+
+    /**
+     * development components containing files deleted by the activities of the build.
+     */
+    private final Set<DevelopmentComponent> deletions = new HashSet<DevelopmentComponent>();
+
+    /**
+     * Determine the changed files of the given development components from the change set of the given build.
+     *
+     * @param build
+     *            the build whose change set should be examined.
+     * @param components
+     *            development components to determine changed files for.
+     */
+    ChangedFiles(final AbstractBuild<?, ?> build, final Collection<DevelopmentComponent> components) {
+        final Map<String, DevelopmentComponent> folders = new HashMap<String, DevelopmentComponent>();
+
+        for (final DevelopmentComponent component : components) {
+            folders.put(String.format("%s/%s/_comp/", component.getVendor(), component.getName()), component);
+        }
+
+        for (final ChangeLogSet.Entry entry : build.getChangeSet()) {
+            for (final ChangeLogSet.AffectedFile file : entry.getAffectedFiles()) {
+                add(folders, file.getPath().replace('\\', '/'), EditType.DELETE.equals(file.getEditType()));
+            }
+        }
+    }
+
+    private void add(final Map<String, DevelopmentComponent> folders, final String path, final boolean deleted) {
+        for (final Map.Entry<String, DevelopmentComponent> folder : folders.entrySet()) {
+            final int index = indexOf(path, folder.getKey());
+
+            if (index > -1) {
+                if (deleted) {
+                    deletions.add(folder.getValue());
+
+                    return;
+                }
+
+                Set<String> files = changedFiles.get(folder.getValue());
+
+                if (files == null) {
+                    files = new TreeSet<String>();
+                    changedFiles.put(folder.getValue(), files);
+                }
+
+                files.add(path.substring(index + folder.getKey().length()));
+
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the given folder in the given path. The folder must start the path or follow a
+     * <code>/</code>, so a vendor like <code>xorg.arachna</code> does not match <code>org.arachna</code>.
+     *
+     * @param path
+     *            path of a changed file.
+     * @param folder
+     *            folder of a development component relative to its compartment.
+     * @return the position of the folder in the path or <code>-1</code> when the path is not located in the folder.
+     */
+    private int indexOf(final String path, final String folder) {
+        int index = path.indexOf(folder);
+
+        while (index > 0 && path.charAt(index - 1) != '/') {
+            index = path.indexOf(folder, index + 1);
+        }
+
+        return index;
+    }
+
+    /**
+     * Returns the changed files of the given development component.
+     *
+     * @param component
+     *            development component to get the changed files for.
+     * @return paths of the changed files relative to the development component's base location sorted by name. The
+     *         collection is empty when the change set contains no files of the development component or files of
+     *         the development component were deleted, i.e. when it has to be analysed completely.
+     */
+    Collection<String> get(final DevelopmentComponent component) {
+        final Set<String> files = changedFiles.get(component);
+
+        return files == null || deletions.contains(component) ? Collections.<String> emptySet() : Collections
+            .unmodifiableSet(files);
+    }
+
+    /**
+     * Determine whether only some files of the given development component are analysed.
+     *
+     * @param component
+     *            development component to check.
+     * @return <code>true</code> when the analysis of the development component is restricted to its changed files.
+     */
+    boolean isPartial(final DevelopmentComponent component) {
+        return !get(component).isEmpty();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.sonar.SonarPomGenerator.DependencyDto;
+
+/**
+ * Build scoped index of the jars contained in the public parts of development components.
+ *
+ * Each public part is scanned once per build regardless of the number of development components referencing it. The
+ * resulting {@link DependencyDto} is immutable and shared by all development components using the public part.
+ *
+ * @author Dirk Weigenand
+ */
+final class ClassPathIndex {
+    /**
+     * snapshot of the workspace used for finding the jars of public parts.
+     */
+    private final WorkspaceSnapshot snapshot;
+
+    /**
+     * resolved public parts mapped by vendor, name of development component and name of public part.
+     */
+    private final ConcurrentMap<String, Future<DependencyDto>> publicParts =
+        new ConcurrentHashMap<String, Future<DependencyDto>>();
+
+    /**
+     * Create an empty index.
+     *
+     * @param snapshot
+     *            snapshot of the workspace used for finding the jars of public parts.
+     */
+    ClassPathIndex(final WorkspaceSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Returns the jars contained in the given public part of the given development component.
+     *
+     * @param component
+     *            development component providing the public part.
+     * @param publicPart
+     *            name of public part.
+     * @return the jars of the given public part. The returned dependency has no paths when the public part does not
+     *         exist in the workspace.
+     */
+    DependencyDto get(final DevelopmentComponent component, final String publicPart) {
+        final String key = String.format("%s:%s:%s", component.getVendor(), component.getName(), publicPart);
+        Future<DependencyDto> dependency = publicParts.get(key);
+
+        if (dependency == null) {
+            final FutureTask<DependencyDto> task = new FutureTask<DependencyDto>(new Callable<DependencyDto>() {
+                @Override
+                public DependencyDto call() {
+                    return resolve(component, publicPart);
+                }
+            });
+
+            dependency = publicParts.putIfAbsent(key, task);
+
+            if (dependency == null) {
+                dependency = task;
+                task.run();
+            }
+        }
+
+        try {
+            return dependency.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Scan the given public part for jars.
+     *
+     * @param component
+     *            development component providing the public part.
+     * @param publicPart
+     *            name of public part.
+     * @return the jars of the given public part.
+     */
+    private DependencyDto resolve(final DevelopmentComponent component, final String publicPart) {
+        // referenced development components not contained in the development configuration have no compartment.
+        final String groupId =
+            component.getCompartment() == null ? component.getVendor() : SonarPomGenerator.getGroupId(component);
+
+        return new DependencyDto(groupId, SonarPomGenerator.getArtifactId(component), snapshot.getJars(component,
+            publicPart));
+    }
+}
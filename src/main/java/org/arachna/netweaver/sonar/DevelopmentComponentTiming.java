@@ -0,0 +1,228 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Time spent in the phases of the sonar analysis of one development component.
+ *
+ * @author Dirk Weigenand
+ */
+@ExportedBean(defaultVisibility = 2)
+public final class DevelopmentComponentTiming {
+    /**
+     * Outcome of the analysis of a development component.
+     */
+    public enum Status {
+        /**
+         * analysis not finished (yet).
+         */
+        PENDING,
+
+        /**
+         * analysis succeeded.
+         */
+        SUCCESS,
+
+        /**
+         * analysis failed.
+         */
+        FAILURE,
+
+        /**
+         * analysis was skipped.
+         */
+        SKIPPED,
+
+        /**
+         * analysis was deferred to the next build because the time budget was exhausted.
+         */
+        DEFERRED;
+    }
+
+    /**
+     * vendor of development component.
+     */
+    private final String vendor;
+
+    /**
+     * name of development component.
+     */
+    private final String name;
+
+    /**
+     * type of development component.
+     */
+    private final String type;
+
+    /**
+     * milliseconds spent resolving the class path.
+     */
+    private long classPathResolution;
+
+    /**
+     * milliseconds spent rendering the pom template.
+     */
+    private long templateRendering;
+
+    /**
+     * milliseconds spent writing the pom.
+     */
+    private long pomWriting;
+
+    /**
+     * milliseconds spent running maven.
+     */
+    private long maven;
+
+    /**
+     * number of files excluded from the analysis and not handed to sonar.
+     */
+    private int excludedFiles;
+
+    /**
+     * outcome of the analysis.
+     */
+    private Status status = Status.PENDING;
+
+    /**
+     * Create a timing for the given development component.
+     *
+     * @param component
+     *            the analysed development component.
+     */
+    DevelopmentComponentTiming(final DevelopmentComponent component) {
+        this(component.getVendor(), component.getName(), String.valueOf(component.getType()));
+    }
+
+    /**
+     * Create a timing for an analysis unit.
+     *
+     * @param vendor
+     *            vendor of development component.
+     * @param name
+     *            name of development component.
+     * @param type
+     *            type of development component.
+     */
+    DevelopmentComponentTiming(final String vendor, final String name, final String type) {
+        this.vendor = vendor;
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * @return the vendor of the development component.
+     */
+    @Exported
+    public String getVendor() {
+        return vendor;
+    }
+
+    /**
+     * @return the name of the development component.
+     */
+    @Exported
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the type of the development component.
+     */
+    @Exported
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return milliseconds spent resolving the class path.
+     */
+    @Exported
+    public long getClassPathResolution() {
+        return classPathResolution;
+    }
+
+    /**
+     * @return milliseconds spent rendering the pom template.
+     */
+    @Exported
+    public long getTemplateRendering() {
+        return templateRendering;
+    }
+
+    /**
+     * @return milliseconds spent writing the pom.
+     */
+    @Exported
+    public long getPomWriting() {
+        return pomWriting;
+    }
+
+    /**
+     * @return milliseconds spent running maven.
+     */
+    @Exported
+    public long getMaven() {
+        return maven;
+    }
+
+    /**
+     * @return milliseconds spent in all phases.
+     */
+    @Exported
+    public long getTotal() {
+        return classPathResolution + templateRendering + pomWriting + maven;
+    }
+
+    /**
+     * @return number of files excluded from the analysis and not handed to sonar.
+     */
+    @Exported
+    public int getExcludedFiles() {
+        return excludedFiles;
+    }
+
+    /**
+     * @return the outcome of the analysis.
+     */
+    @Exported
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return <code>vendor:name</code> of the development component.
+     */
+    public String getQualifiedName() {
+        return String.format("%s:%s", vendor, name);
+    }
+
+    void addClassPathResolution(final long millis) {
+        classPathResolution += millis;
+    }
+
+    void addTemplateRendering(final long millis) {
+        templateRendering += millis;
+    }
+
+    void addPomWriting(final long millis) {
+        pomWriting += millis;
+    }
+
+    void addMaven(final long millis) {
+        maven += millis;
+    }
+
+    void setExcludedFiles(final int excludedFiles) {
+        this.excludedFiles = excludedFiles;
+    }
+
+    void setStatus(final Status status) {
+        this.status = status;
+    }
+}
@@ -0,0 +1,510 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.model.Computer;
+import hudson.model.JDK;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.StreamBuildListener;
+import hudson.tasks.Maven;
+import hudson.tasks.Maven.MavenInstallation;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import jenkins.model.Jenkins;
+
+import org.apache.commons.lang.StringUtils;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.sonar.SonarPomGenerator.DependencyDto;
+import org.arachna.netweaver.sonar.SonarPomGenerator.Path;
+
+/**
+ * Distributes the analyses of development components across the online agents carrying a label.
+ *
+ * The development components are partitioned by their expected duration (see {@link AnalysisHistory}). For each agent
+ * the folders of its development components and the public parts on their class paths are copied into a fresh
+ * workspace on the agent keeping their location relative to the build's workspace. The workspace is scoped to the job
+ * and build and removed when the agent finished its share, so files deleted from the build's workspace never linger
+ * in later analyses. The generated <code>sonar-pom.xml</code> (or <code>sonar-project.properties</code>) is rewritten
+ * to point into the agent's workspace. The sonar user home caching the analyzers is kept per job next to these
+ * workspaces, so it outlives the build on the agent (the controller's copy is archived by {@link ScannerCache}). Each
+ * agent analyses its share one development component at a time; the agents work in parallel. Timings and results are
+ * recorded into the build as for local analyses.
+ *
+ * @author Dirk Weigenand
+ */
+final class DistributedAnalysis {
+    /**
+     * name of the folder below an agent's root holding the copied workspaces.
+     */
+    private static final String WORKSPACES = "sonar-workspaces";
+
+    /**
+     * name of the folder next to a job's workspaces on an agent used as sonar user home.
+     */
+    private static final String USER_HOME = ".sonar";
+
+    /**
+     * build scoped state.
+     */
+    private final SonarAnalysisContext context;
+
+    /**
+     * absolute path of the build's workspace.
+     */
+    private final String workspace;
+
+    /**
+     * the agents to distribute the analyses to.
+     */
+    private final List<Node> agents;
+
+    /**
+     * Create a distributed analysis using the online agents carrying the given label.
+     *
+     * @param context
+     *            build scoped state.
+     * @param workspace
+     *            absolute path of the build's workspace.
+     * @param label
+     *            label expression selecting the agents.
+     */
+    DistributedAnalysis(final SonarAnalysisContext context, final String workspace, final String label) {
+        this.context = context;
+        this.workspace = workspace;
+        agents = getOnlineAgents(label);
+    }
+
+    /**
+     * @return the agents the analyses are distributed to.
+     */
+    List<Node> getAgents() {
+        return agents;
+    }
+
+    /**
+     * Analyse the given development components on the agents.
+     *
+     * @param history
+     *            durations of analyses in previous builds.
+     * @param components
+     *            development components to analyse.
+     * @param prioritized
+     *            development components to analyse first on each agent (i.e. those deferred by previous builds).
+     * @param timings
+     *            list to add the timings of the analysed development components to.
+     * @param deferred
+     *            list to add the development components to whose analysis was not started because the time budget was
+     *            exhausted.
+     * @return the development components whose analysis succeeded.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    List<DevelopmentComponent> run(final AnalysisHistory history, final List<DevelopmentComponent> components,
+        final Collection<DevelopmentComponent> prioritized, final List<DevelopmentComponentTiming> timings,
+        final List<DevelopmentComponent> deferred) throws InterruptedException {
+        final List<List<DevelopmentComponent>> shares = history.partition(components, agents.size(), prioritized);
+        final ExecutorService executor = Executors.newFixedThreadPool(agents.size());
+        final List<Future<List<DevelopmentComponent>>> results = new ArrayList<Future<List<DevelopmentComponent>>>();
+        final List<List<DevelopmentComponentTiming>> shareTimings = new ArrayList<List<DevelopmentComponentTiming>>();
+        final List<DevelopmentComponent> succeeded = new ArrayList<DevelopmentComponent>();
+
+        try {
+            for (int i = 0; i < agents.size(); i++) {
+                final Node agent = agents.get(i);
+                final List<DevelopmentComponent> share = shares.get(i);
+                final List<DevelopmentComponentTiming> agentTimings = new ArrayList<DevelopmentComponentTiming>();
+
+                for (final DevelopmentComponent component : share) {
+                    agentTimings.add(new DevelopmentComponentTiming(component));
+                }
+
+                timings.addAll(agentTimings);
+                shareTimings.add(agentTimings);
+                context.getListener().getLogger().println(
+                    String.format("Analysing %d development components on %s.", share.size(), getName(agent)));
+
+                results.add(executor.submit(new Callable<List<DevelopmentComponent>>() {
+                    @Override
+                    public List<DevelopmentComponent> call() throws IOException, InterruptedException {
+                        return analyze(agent, share, agentTimings);
+                    }
+                }));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    succeeded.addAll(results.get(i).get());
+                }
+                catch (final ExecutionException e) {
+                    context.getListener().error(
+                        String.format("Sonar analysis on %s failed: %s", getName(agents.get(i)), e.getCause()));
+                }
+
+                for (int j = 0; j < shareTimings.get(i).size(); j++) {
+                    final DevelopmentComponentTiming timing = shareTimings.get(i).get(j);
+
+                    if (DevelopmentComponentTiming.Status.DEFERRED.equals(timing.getStatus())) {
+                        deferred.add(shares.get(i).get(j));
+                    }
+                    else if (DevelopmentComponentTiming.Status.PENDING.equals(timing.getStatus())) {
+                        timing.setStatus(DevelopmentComponentTiming.Status.FAILURE);
+                    }
+                }
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return succeeded;
+    }
+
+    /**
+     * Analyse the given development components on the given agent one after the other. The workspace on the agent is
+     * removed afterwards.
+     */
+    private List<DevelopmentComponent> analyze(final Node agent, final List<DevelopmentComponent> share,
+        final List<DevelopmentComponentTiming> agentTimings) throws IOException, InterruptedException {
+        final List<DevelopmentComponent> succeeded = new ArrayList<DevelopmentComponent>();
+
+        if (share.isEmpty()) {
+            return succeeded;
+        }
+
+        final FilePath remoteWorkspace =
+            agent.getRootPath().child(WORKSPACES).child(getWorkspaceName())
+                .child(Integer.toString(context.getBuild().getNumber()));
+
+        try {
+            analyzeInWorkspace(agent, share, agentTimings, remoteWorkspace, succeeded);
+        }
+        finally {
+            try {
+                remoteWorkspace.deleteRecursive();
+            }
+            catch (final IOException e) {
+                context.getListener().getLogger().println(
+                    String.format("Could not delete %s on %s: %s", remoteWorkspace.getRemote(), getName(agent),
+                        e.getMessage()));
+            }
+        }
+
+        return succeeded;
+    }
+
+    /**
+     * Analyse the given development components in the given workspace on the agent one after the other.
+     */
+    private void analyzeInWorkspace(final Node agent, final List<DevelopmentComponent> share,
+        final List<DevelopmentComponentTiming> agentTimings, final FilePath remoteWorkspace,
+        final List<DevelopmentComponent> succeeded) throws IOException, InterruptedException {
+        final Launcher launcher = agent.createLauncher(context.getListener());
+        final Set<String> copied = new HashSet<String>();
+        EnvVars env = null;
+        String mavenExecutable = null;
+
+        for (int i = 0; i < share.size(); i++) {
+            final DevelopmentComponent component = share.get(i);
+            final DevelopmentComponentTiming timing = agentTimings.get(i);
+
+            if (context.isOverBudget()) {
+                timing.setStatus(DevelopmentComponentTiming.Status.DEFERRED);
+                continue;
+            }
+
+            final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            final BuildListener dcListener = new StreamBuildListener(buffer, Charset.defaultCharset());
+            boolean result = false;
+
+            try {
+                final boolean scanner = isAnalysedByScanner(component);
+
+                if (env == null) {
+                    env = getEnvironment(agent, dcListener);
+                }
+
+                if (!scanner && mavenExecutable == null) {
+                    mavenExecutable = getMavenExecutable(agent, launcher, env, dcListener);
+                }
+
+                final FilePath settings = prepare(component, scanner, remoteWorkspace, copied, timing);
+                final AnalysisThrottle.Slot slot = context.acquireSlot(agent.getNodeName(), dcListener);
+
+                try {
+                    final long start = System.currentTimeMillis();
+                    result =
+                        launch(launcher, dcListener, env, scanner ? context.getSonarScanner().getExecutable()
+                            : mavenExecutable, settings, component, scanner);
+                    timing.addMaven(System.currentTimeMillis() - start);
+                }
+                finally {
+                    slot.release();
+                }
+            }
+            catch (final IOException e) {
+                dcListener.getLogger().println(
+                    String.format("Could not analyse %s on %s: %s", component.getName(), getName(agent),
+                        e.getMessage()));
+            }
+            finally {
+                timing.setStatus(result ? DevelopmentComponentTiming.Status.SUCCESS
+                    : DevelopmentComponentTiming.Status.FAILURE);
+                final PrintStream logger = context.getListener().getLogger();
+
+                synchronized (logger) {
+                    logger.println(String.format("---- %s:%s (%s) ----", component.getVendor(), component.getName(),
+                        getName(agent)));
+                    buffer.writeTo(logger);
+                    logger.flush();
+                }
+            }
+
+            if (result) {
+                succeeded.add(component);
+            }
+        }
+    }
+
+    /**
+     * Determine whether the given development component is analysed by the sonar scanner. Development components
+     * without NWDI build output are compiled and analysed using maven instead.
+     */
+    private boolean isAnalysedByScanner(final DevelopmentComponent component) {
+        return context.getSonarScanner() != null
+            && (context.getPomGenerator().hasBuildOutput(component) || !SonarAnalysisTask.isAnalysed(component));
+    }
+
+    /**
+     * Copy the inputs of the analysis of the given development component to the agent and write its analysis settings
+     * there.
+     *
+     * @return location of the analysis settings on the agent.
+     */
+    private FilePath prepare(final DevelopmentComponent component, final boolean scanner,
+        final FilePath remoteWorkspace, final Set<String> copied, final DevelopmentComponentTiming timing)
+        throws IOException, InterruptedException {
+        final StringWriter settings = new StringWriter();
+
+        if (scanner) {
+            new SonarProjectPropertiesGenerator(context.getPomGenerator()).execute(component, settings, timing);
+        }
+        else {
+            context.getPomGenerator().execute(component, settings, timing);
+        }
+
+        final long start = System.currentTimeMillis();
+        final String baseLocation = context.getAntHelper().getBaseLocation(component);
+        final Collection<String> folders = new ArrayList<String>();
+        folders.add(baseLocation);
+
+        // the build output and test sources may be located outside of the development component's folder.
+        if (context.getPomGenerator().hasBuildOutput(component)) {
+            addFolder(folders, baseLocation, component.getOutputFolder());
+        }
+
+        for (final String testFolder : context.getPomGenerator().getTestSourceFolders(component)) {
+            if (new File(testFolder).isAbsolute()) {
+                addFolder(folders, baseLocation, testFolder);
+            }
+        }
+
+        for (final DependencyDto dependency : context.getPomGenerator().createClassPath(component)) {
+            for (final Path path : dependency.getPaths()) {
+                folders.add(new File(path.getPath()).getParent());
+            }
+        }
+
+        for (final String folder : folders) {
+            if (copied.add(folder)) {
+                new FilePath(new File(folder)).copyRecursiveTo(remoteWorkspace.child(relativize(folder)));
+            }
+        }
+
+        final FilePath target =
+            remoteWorkspace.child(relativize(baseLocation)).child(
+                scanner ? "sonar-project.properties" : "sonar-pom.xml");
+        target.write(rebase(settings.toString(), remoteWorkspace), scanner ? "ISO-8859-1" : "UTF-8");
+        timing.addPomWriting(System.currentTimeMillis() - start);
+
+        return target;
+    }
+
+    /**
+     * Add the given folder to the folders to copy unless it is located in the development component's folder.
+     */
+    private void addFolder(final Collection<String> folders, final String baseLocation, final String folder) {
+        final String normalized = new File(folder).getAbsolutePath();
+
+        if (!normalized.equals(baseLocation) && !normalized.startsWith(baseLocation + File.separator)) {
+            folders.add(normalized);
+        }
+    }
+
+    /**
+     * Run maven or the sonar scanner on the agent using the JVM options configured for the type of the given
+     * development component.
+     */
+    private boolean launch(final Launcher launcher, final BuildListener dcListener, final EnvVars agentEnv,
+        final String executable, final FilePath settings, final DevelopmentComponent component,
+        final boolean scanner) throws IOException, InterruptedException {
+        final ArgumentListBuilder args = new ArgumentListBuilder(executable);
+        final EnvVars env = new EnvVars(agentEnv);
+        final String jvmOptions = context.getPomGenerator().getAnalysisOptions(component).getJvmOptions();
+
+        if (scanner) {
+            if (!jvmOptions.isEmpty()) {
+                env.put("SONAR_SCANNER_OPTS", jvmOptions);
+            }
+
+            args.addKeyValuePair("-D", "project.settings", settings.getRemote(), false);
+        }
+        else {
+            if (!jvmOptions.isEmpty()) {
+                env.put("MAVEN_OPTS", jvmOptions);
+            }
+
+            args.add("-B", "-f", settings.getRemote());
+            args.addTokenized(SonarAnalysisTask.getGoals(context, Collections.singleton(component)));
+        }
+
+        args.addKeyValuePair("-D", "sonar.projectVersion", context.getProjectVersion(), false);
+
+        return launcher.launch().cmds(args).envs(env).pwd(settings.getParent()).stdout(dcListener).join() == 0;
+    }
+
+    /**
+     * Returns the environment for analyses on the given agent: the build's environment with the agent's own variables
+     * (e.g. <code>PATH</code>) and the JDK configured for the job resolved for the agent.
+     */
+    private EnvVars getEnvironment(final Node agent, final BuildListener listener) throws IOException,
+        InterruptedException {
+        final EnvVars env = context.getBuild().getEnvironment(listener);
+        final Computer computer = agent.toComputer();
+
+        if (computer != null) {
+            env.overrideAll(computer.getEnvironment());
+        }
+
+        final JDK jdk = context.getBuild().getProject().getJDK();
+
+        if (jdk != null) {
+            jdk.forNode(agent, listener).forEnvironment(env).buildEnvVars(env);
+        }
+
+        return env;
+    }
+
+    /**
+     * Returns the maven executable of the build's maven installation on the given agent. The installation's variables
+     * (e.g. <code>M2_HOME</code>) are added to the given environment.
+     *
+     * @throws IOException
+     *             when the maven installation is not configured or can not be found on the agent.
+     */
+    private String getMavenExecutable(final Node agent, final Launcher launcher, final EnvVars env,
+        final BuildListener listener) throws IOException, InterruptedException {
+        for (final MavenInstallation installation : Jenkins.getInstance()
+            .getDescriptorByType(Maven.DescriptorImpl.class).getInstallations()) {
+            if (installation.getName().equals(context.getMavenName())) {
+                final MavenInstallation onAgent = installation.forNode(agent, listener).forEnvironment(env);
+                final String executable = onAgent.getExecutable(launcher);
+
+                if (executable == null) {
+                    throw new IOException(String.format("Maven installation '%s' was not found on %s.",
+                        installation.getName(), getName(agent)));
+                }
+
+                onAgent.buildEnvVars(env);
+
+                return executable;
+            }
+        }
+
+        throw new IOException(String.format("No maven installation named '%s' is configured.",
+            context.getMavenName()));
+    }
+
+    /**
+     * Returns the given absolute path relative to the build's workspace.
+     */
+    private String relativize(final String path) throws IOException {
+        final String normalized = new File(path).getAbsolutePath();
+
+        if (!normalized.startsWith(workspace)) {
+            throw new IOException(String.format("%s is not located in the workspace %s.", path, workspace));
+        }
+
+        return StringUtils.removeStart(normalized.substring(workspace.length()).replace('\\', '/'), "/");
+    }
+
+    /**
+     * Rewrite the paths in the given analysis settings to point into the given workspace on an agent. The sonar user
+     * home is moved to the job's user home on the agent.
+     */
+    private String rebase(final String settings, final FilePath remoteWorkspace) {
+        final String userHome = context.getPomGenerator().getScannerUserHome();
+        String rebased = settings;
+
+        if (userHome != null) {
+            rebased = rebased.replace(userHome, remoteWorkspace.getParent().child(USER_HOME).getRemote());
+        }
+
+        return rebased.replace(workspace, remoteWorkspace.getRemote());
+    }
+
+    /**
+     * Returns the name of the folder holding the job's workspaces on an agent. Jobs in folders have full names
+     * containing slashes, those and other characters not safe in file names are replaced.
+     */
+    private String getWorkspaceName() {
+        return context.getBuild().getProject().getFullName().replaceAll("[^\\w.-]", "_");
+    }
+
+    private static String getName(final Node agent) {
+        return StringUtils.defaultIfEmpty(agent.getNodeName(), "master");
+    }
+
+    /**
+     * Returns the online agents carrying the given label.
+     */
+    private static List<Node> getOnlineAgents(final String label) {
+        final List<Node> online = new ArrayList<Node>();
+        final Label agentLabel = Jenkins.getInstance().getLabel(label);
+
+        if (agentLabel != null) {
+            for (final Node node : agentLabel.getNodes()) {
+                final Computer computer = node.toComputer();
+
+                if (computer != null && computer.isOnline() && node.getRootPath() != null) {
+                    online.add(node);
+                }
+            }
+        }
+
+        return online;
+    }
+}
@@ -0,0 +1,260 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.regex.Pattern;
+
+/**
+ * Ant style exclusion patterns (as used for <code>sonar.exclusions</code>) compiled into one regular expression.
+ *
+ * The matcher is used to prune the source folders handed to sonar: folders without excluded files are passed as is,
+ * folders containing only excluded files are dropped and the remaining folders are split into their surviving files
+ * and sub folders. This keeps the scanner from indexing generated code (e.g. WebDynpro or proxy classes) only to
+ * discard it afterwards. Folders splitting into more than {@link #MAX_PATHS} paths are passed as is and left to
+ * <code>sonar.exclusions</code>, to keep the analysis settings small.
+ *
+ * @author Dirk Weigenand
+ */
+final class ExclusionMatcher {
+    /**
+     * maximum number of folders and files a pruned source folder may be split into.
+     */
+    static final int MAX_PATHS = 100;
+
+    /**
+     * the compiled patterns (<code>null</code> when there are no patterns).
+     */
+    private final Pattern pattern;
+
+    /**
+     * Compile the given ant style patterns.
+     *
+     * @param patterns
+     *            ant style patterns relative to the base location of a development component.
+     */
+    ExclusionMatcher(final Collection<String> patterns) {
+        final StringBuilder regex = new StringBuilder();
+
+        for (final String exclude : patterns) {
+            final String trimmed = exclude.trim();
+
+            if (!trimmed.isEmpty()) {
+                if (regex.length() > 0) {
+                    regex.append('|');
+                }
+
+                regex.append("(?:").append(toRegex(trimmed)).append(')');
+            }
+        }
+
+        pattern = regex.length() == 0 ? null : Pattern.compile(regex.toString());
+    }
+
+    /**
+     * Translate an ant style pattern into a regular expression.
+     *
+     * @param exclude
+     *            ant style pattern.
+     * @return the equivalent regular expression.
+     */
+    static String toRegex(final String exclude) {
+        String ant = exclude.replace('\\', '/');
+
+        if (ant.startsWith("/")) {
+            ant = ant.substring(1);
+        }
+
+        if (ant.endsWith("/")) {
+            ant += "**";
+        }
+
+        final StringBuilder regex = new StringBuilder();
+        int i = 0;
+
+        while (i < ant.length()) {
+            final char c = ant.charAt(i);
+
+            if (ant.startsWith("**/", i)) {
+                regex.append("(?:.*/)?");
+                i += 3;
+            }
+            else if (ant.startsWith("/**", i) && i + 3 == ant.length()) {
+                regex.append("(?:/.*)?");
+                i += 3;
+            }
+            else if (ant.startsWith("**", i)) {
+                regex.append(".*");
+                i += 2;
+            }
+            else if (c == '*') {
+                regex.append("[^/]*");
+                i++;
+            }
+            else if (c == '?') {
+                regex.append("[^/]");
+                i++;
+            }
+            else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+                i++;
+            }
+        }
+
+        return regex.toString();
+    }
+
+    /**
+     * @return <code>true</code> when there are no exclusion patterns.
+     */
+    boolean isEmpty() {
+        return pattern == null;
+    }
+
+    /**
+     * Determine whether the given path is excluded.
+     *
+     * @param path
+     *            path relative to the base location of a development component using '/' as separator.
+     * @return <code>true</code> when the given path matches one of the patterns.
+     */
+    boolean matches(final String path) {
+        return pattern != null && pattern.matcher(path).matches();
+    }
+
+    /**
+     * Prune the given source folder.
+     *
+     * @param folder
+     *            source folder relative to the base location of a development component.
+     * @param files
+     *            files in the given folder relative to the base location, sorted.
+     * @return the folders and files of the given folder to hand to sonar and the number of excluded files. The
+     *         folder itself is returned when it would be split into more than {@link #MAX_PATHS} paths.
+     */
+    Pruned prune(final String folder, final SortedSet<String> files) {
+        final Set<String> excluded = new HashSet<String>();
+
+        for (final String file : files) {
+            if (matches(file)) {
+                excluded.add(file);
+            }
+        }
+
+        final List<String> paths = new ArrayList<String>();
+
+        if (excluded.isEmpty()) {
+            paths.add(folder);
+        }
+        else if (excluded.size() < files.size()) {
+            collect(folder, new ArrayList<String>(files), excluded, paths);
+
+            if (paths.size() > MAX_PATHS) {
+                paths.clear();
+                paths.add(folder);
+            }
+        }
+
+        return new Pruned(paths, excluded.size());
+    }
+
+    /**
+     * Add the given folder to the given paths when none of its files are excluded, otherwise add its surviving files
+     * and recurse into its sub folders.
+     *
+     * @param folder
+     *            folder to collect.
+     * @param files
+     *            files below the given folder, sorted.
+     * @param excluded
+     *            excluded files.
+     * @param paths
+     *            list to add the surviving folders and files to.
+     */
+    private void collect(final String folder, final List<String> files, final Set<String> excluded,
+        final List<String> paths) {
+        int surviving = 0;
+
+        for (final String file : files) {
+            if (!excluded.contains(file)) {
+                surviving++;
+            }
+        }
+
+        if (surviving == files.size()) {
+            paths.add(folder);
+            return;
+        }
+
+        if (surviving == 0) {
+            return;
+        }
+
+        final int prefix = folder.length() + 1;
+        int i = 0;
+
+        while (i < files.size()) {
+            final String file = files.get(i);
+            final int separator = file.indexOf('/', prefix);
+
+            if (separator < 0) {
+                if (!excluded.contains(file)) {
+                    paths.add(file);
+                }
+
+                i++;
+            }
+            else {
+                final String child = file.substring(0, separator);
+                final List<String> below = new ArrayList<String>();
+
+                while (i < files.size() && files.get(i).startsWith(child + '/')) {
+                    below.add(files.get(i));
+                    i++;
+                }
+
+                collect(child, below, excluded, paths);
+            }
+        }
+    }
+
+    /**
+     * Result of pruning a source folder.
+     */
+    static final class Pruned {
+        /**
+         * folders and files to hand to sonar.
+         */
+        private final List<String> paths;
+
+        /**
+         * number of excluded files.
+         */
+        private final int excluded;
+
+        Pruned(final List<String> paths, final int excluded) {
+            this.paths = paths;
+            this.excluded = excluded;
+        }
+
+        /**
+         * @return folders and files to hand to sonar relative to the base location of the development component.
+         */
+        List<String> getPaths() {
+            return paths;
+        }
+
+        /**
+         * @return number of excluded files.
+         */
+        int getExcluded() {
+            return excluded;
+        }
+    }
+}
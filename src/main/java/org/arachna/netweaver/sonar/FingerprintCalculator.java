@@ -0,0 +1,194 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.Util;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.sonar.SonarPomGenerator.DependencyDto;
+import org.arachna.netweaver.sonar.SonarPomGenerator.Path;
+
+/**
+ * Calculates a fingerprint of the inputs of a sonar analysis of a development component.
+ *
+ * The fingerprint is a SHA-256 digest over the configuration of the analysis, the content of all files in the source,
+ * test source and resource folders and the path, size and modification time of the jars on the development component's
+ * class path. Files are read streaming and hashed in parallel.
+ *
+ * @author Dirk Weigenand
+ */
+final class FingerprintCalculator {
+    /**
+     * size of buffer used for reading files.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * encoding used for hashing paths.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * generator used for determining the class path of development components.
+     */
+    private final SonarPomGenerator pomGenerator;
+
+    /**
+     * settings of the build step affecting the analysis of all development components (e.g. plugin version and
+     * analysis tool).
+     */
+    private final String configuration;
+
+    /**
+     * pool used for hashing files in parallel.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Create a calculator for fingerprints of development components.
+     *
+     * @param pomGenerator
+     *            generator used for determining the class path of development components.
+     * @param configuration
+     *            settings of the build step affecting the analysis of all development components.
+     * @param threads
+     *            number of threads used for hashing files.
+     */
+    FingerprintCalculator(final SonarPomGenerator pomGenerator, final String configuration, final int threads) {
+        this.pomGenerator = pomGenerator;
+        this.configuration = configuration;
+        executor = Executors.newFixedThreadPool(Math.max(1, threads));
+    }
+
+    /**
+     * Calculate the fingerprint of the given development component.
+     *
+     * @param component
+     *            development component to calculate the fingerprint for.
+     * @return hex encoded fingerprint of the given development component.
+     * @throws IOException
+     *             when a file could not be read.
+     * @throws InterruptedException
+     *             when the calculation was interrupted.
+     */
+    String calculate(final DevelopmentComponent component) throws IOException, InterruptedException {
+        final List<File> files = new ArrayList<File>(collectFiles(component));
+        final List<Future<byte[]>> hashes = new ArrayList<Future<byte[]>>(files.size());
+
+        for (final File file : files) {
+            hashes.add(executor.submit(new Callable<byte[]>() {
+                @Override
+                public byte[] call() throws IOException {
+                    return hash(file);
+                }
+            }));
+        }
+
+        final MessageDigest digest = createDigest();
+        digest.update(component.getType().toString().getBytes(UTF8));
+        digest.update(configuration.getBytes(UTF8));
+        digest.update(pomGenerator.describeSettings(component).getBytes(UTF8));
+
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                digest.update(files.get(i).getAbsolutePath().getBytes(UTF8));
+                digest.update(hashes.get(i).get());
+            }
+        }
+        catch (final ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        for (final DependencyDto dependency : pomGenerator.createClassPath(component)) {
+            for (final Path path : dependency.getPaths()) {
+                final File jar = new File(path.getPath());
+                digest.update(String.format("%s:%d:%d", path.getPath(), jar.length(), jar.lastModified())
+                    .getBytes(UTF8));
+            }
+        }
+
+        return Util.toHexString(digest.digest());
+    }
+
+    /**
+     * Stop the threads used for hashing files.
+     */
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Collect the files of all source, test source and resource folders of the given development component.
+     *
+     * @param component
+     *            development component to collect files for.
+     * @return the files of the given development component sorted by path.
+     */
+    private SortedSet<File> collectFiles(final DevelopmentComponent component) {
+        final WorkspaceSnapshot snapshot = pomGenerator.getWorkspaceSnapshot();
+        final Collection<String> folders = new ArrayList<String>();
+        folders.addAll(snapshot.getSourceFileSets(component));
+        folders.addAll(component.getTestSourceFolders());
+        folders.addAll(snapshot.getResourceFileSets(component));
+
+        return snapshot.getFiles(component, folders);
+    }
+
+    /**
+     * Calculate the digest of the given file's content.
+     *
+     * @param file
+     *            file to hash.
+     * @return digest of the given file's content.
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    static byte[] hash(final File file) throws IOException {
+        final MessageDigest digest = createDigest();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        final InputStream input = new FileInputStream(file);
+
+        try {
+            int read;
+
+            while ((read = input.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        finally {
+            input.close();
+        }
+
+        return digest.digest();
+    }
+
+    /**
+     * @return a new SHA-256 message digest.
+     */
+    static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
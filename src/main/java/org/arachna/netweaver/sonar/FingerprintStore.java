@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Persistent store for the fingerprints of the development components successfully analysed by previous builds.
+ *
+ * @author Dirk Weigenand
+ */
+final class FingerprintStore {
+    /**
+     * file the fingerprints are persisted to.
+     */
+    private final File file;
+
+    /**
+     * fingerprints mapped by vendor and name of development component.
+     */
+    private final Properties fingerprints = new Properties();
+
+    /**
+     * Create a store persisting fingerprints to the given file.
+     *
+     * @param file
+     *            file the fingerprints are persisted to.
+     */
+    FingerprintStore(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Read the fingerprints persisted by previous builds.
+     *
+     * @throws IOException
+     *             when the file could not be read.
+     */
+    void load() throws IOException {
+        if (file.exists()) {
+            final InputStream input = new FileInputStream(file);
+
+            try {
+                fingerprints.load(input);
+            }
+            finally {
+                input.close();
+            }
+        }
+    }
+
+    /**
+     * Persist the fingerprints.
+     *
+     * @throws IOException
+     *             when the file could not be written.
+     */
+    void save() throws IOException {
+        final OutputStream output = new FileOutputStream(file);
+
+        try {
+            fingerprints.store(output, "Fingerprints of development components analysed by sonar");
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Determine whether the given fingerprint matches the one of the last successful analysis of the given development
+     * component.
+     *
+     * @param component
+     *            development component to check.
+     * @param fingerprint
+     *            current fingerprint of the development component.
+     * @return <code>true</code> when the development component did not change since the last successful analysis.
+     */
+    boolean isUnchanged(final DevelopmentComponent component, final String fingerprint) {
+        return fingerprint.equals(fingerprints.getProperty(getKey(component)));
+    }
+
+    /**
+     * Record the fingerprint of a successfully analysed development component.
+     *
+     * @param component
+     *            the analysed development component.
+     * @param fingerprint
+     *            fingerprint of the development component.
+     */
+    void put(final DevelopmentComponent component, final String fingerprint) {
+        fingerprints.setProperty(getKey(component), fingerprint);
+    }
+
+    private String getKey(final DevelopmentComponent component) {
+        return String.format("%s:%s", component.getVendor(), component.getName());
+    }
+}
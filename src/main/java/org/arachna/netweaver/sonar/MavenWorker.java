@@ -0,0 +1,161 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.model.BuildListener;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Long lived maven process (<a href="https://github.com/apache/maven-mvnd">maven daemon</a>) that is kept alive for
+ * the duration of the sonar build step. The daemon keeps maven core, the plugins used for the analysis and the JIT
+ * warmup between the analyses of development components.
+ *
+ * The daemons of a build are registered in a storage folder of their own, so stopping them at the end of the build
+ * step does not affect the daemons serving other jobs on the same node. The JVM options are passed as the daemon's
+ * <code>mvnd.jvmArgs</code>: mvnd reuses a daemon only for requests with the same JVM options and starts another
+ * daemon for a different set of options.
+ *
+ * When the daemon can not be started or dies the worker marks itself as dead and callers fall back to forking a new
+ * maven JVM for each analysis.
+ *
+ * @author Dirk Weigenand
+ */
+final class MavenWorker {
+    /**
+     * exit code of maven when the build failed.
+     */
+    private static final int BUILD_FAILURE = 1;
+
+    /**
+     * path to the maven daemon client executable.
+     */
+    private final String executable;
+
+    /**
+     * folder the daemons of the build are registered in.
+     */
+    private final String daemonStorage;
+
+    /**
+     * indicates whether the daemon is usable.
+     */
+    private volatile boolean alive = true;
+
+    /**
+     * Create a worker using the given maven daemon client.
+     *
+     * @param executable
+     *            path to the maven daemon client executable (<code>mvnd</code>).
+     * @param daemonStorage
+     *            folder the daemons of the build are registered in (on the node running the analyses).
+     */
+    MavenWorker(final String executable, final String daemonStorage) {
+        this.executable = executable;
+        this.daemonStorage = daemonStorage;
+    }
+
+    /**
+     * @return <code>true</code> when the daemon is usable, <code>false</code> after it died.
+     */
+    boolean isAlive() {
+        return alive;
+    }
+
+    /**
+     * Let the daemon execute the given goals on the given pom.
+     *
+     * @param launcher
+     *            launcher for starting the daemon client.
+     * @param listener
+     *            listener receiving the maven output.
+     * @param env
+     *            environment for the daemon client process.
+     * @param goals
+     *            goals to execute.
+     * @param pom
+     *            absolute path of the pom to execute the goals on.
+     * @param properties
+     *            system properties to pass to maven (one <code>key=value</code> pair per line).
+     * @param jvmOptions
+     *            options for the daemon JVM. Analyses with different options are executed by different daemons.
+     * @return <code>true</code> when the build succeeded, <code>false</code> when it failed, <code>null</code> when the
+     *         daemon died and the analysis has to be repeated using a forked maven.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    Boolean run(final Launcher launcher, final BuildListener listener, final EnvVars env, final String goals,
+        final String pom, final String properties, final String jvmOptions) throws InterruptedException {
+        if (!alive) {
+            return null;
+        }
+
+        try {
+            final ArgumentListBuilder args = new ArgumentListBuilder(executable, "-B", "-f", pom);
+            args.addTokenized(goals);
+            args.addKeyValuePairs("-D", parseProperties(properties));
+            args.addKeyValuePair("-D", "mvnd.daemonStorage", daemonStorage, false);
+
+            if (!StringUtils.isBlank(jvmOptions)) {
+                args.addKeyValuePair("-D", "mvnd.jvmArgs", jvmOptions.trim(), false);
+            }
+
+            final int exitCode = launcher.launch().cmds(args).envs(env).stdout(listener).join();
+
+            if (exitCode == 0 || exitCode == BUILD_FAILURE) {
+                return exitCode == 0;
+            }
+
+            listener.getLogger().println(
+                String.format("Maven daemon terminated with exit code %d, falling back to forked maven.", exitCode));
+        }
+        catch (final IOException e) {
+            listener.getLogger().println(
+                String.format("Maven daemon could not be used (%s), falling back to forked maven.", e.getMessage()));
+        }
+
+        alive = false;
+
+        return null;
+    }
+
+    /**
+     * Stop the daemons of the build and remove their storage folder.
+     *
+     * @param launcher
+     *            launcher for starting the daemon client.
+     * @param listener
+     *            the build's listener.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    void stop(final Launcher launcher, final BuildListener listener) throws InterruptedException {
+        try {
+            final ArgumentListBuilder args = new ArgumentListBuilder(executable, "--stop");
+            args.addKeyValuePair("-D", "mvnd.daemonStorage", daemonStorage, false);
+            launcher.launch().cmds(args).stdout(listener).join();
+            new FilePath(launcher.getChannel(), daemonStorage).deleteRecursive();
+        }
+        catch (final IOException e) {
+            listener.getLogger().println(String.format("Could not stop maven daemon: %s", e.getMessage()));
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private Map<String, String> parseProperties(final String properties) throws IOException {
+        final Properties parsed = new Properties();
+        parsed.load(new StringReader(properties));
+
+        return (Map)parsed;
+    }
+}
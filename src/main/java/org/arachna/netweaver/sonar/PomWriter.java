@@ -0,0 +1,123 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes generated pom files only when their content differs from the existing file. Changed files are replaced
+ * atomically so maven never sees a partially written pom.
+ *
+ * @author Dirk Weigenand
+ */
+class PomWriter {
+    /**
+     * number of files written.
+     */
+    private final AtomicInteger written = new AtomicInteger();
+
+    /**
+     * number of files left untouched because their content did not change.
+     */
+    private final AtomicInteger reused = new AtomicInteger();
+
+    /**
+     * Write the given content to the given file unless the file already has this content.
+     *
+     * @param target
+     *            file to write.
+     * @param content
+     *            the content to write.
+     * @return <code>true</code> when the file was written, <code>false</code> when it already had the given content.
+     * @throws IOException
+     *             when reading the existing or writing the new file failed.
+     */
+    boolean write(final File target, final byte[] content) throws IOException {
+        if (target.length() == content.length && target.exists()
+            && MessageDigest.isEqual(FingerprintCalculator.hash(target), hash(content))) {
+            reused.incrementAndGet();
+
+            return false;
+        }
+
+        final File temp = File.createTempFile(target.getName(), ".tmp", target.getAbsoluteFile().getParentFile());
+
+        try {
+            final OutputStream output = new FileOutputStream(temp);
+
+            try {
+                output.write(content);
+            }
+            finally {
+                output.close();
+            }
+
+            move(temp, target);
+        }
+        finally {
+            if (temp.exists()) {
+                temp.delete();
+            }
+        }
+
+        written.incrementAndGet();
+
+        return true;
+    }
+
+    /**
+     * @return the number of files written.
+     */
+    int getWritten() {
+        return written.get();
+    }
+
+    /**
+     * @return the number of files left untouched because their content did not change.
+     */
+    int getReused() {
+        return reused.get();
+    }
+
+    private void move(final File source, final File target) throws IOException {
+        try {
+            moveAtomically(source, target);
+        }
+        catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Replace the given target by the given source atomically.
+     *
+     * @param source
+     *            file to move.
+     * @param target
+     *            file to replace.
+     * @throws AtomicMoveNotSupportedException
+     *             when the file system does not support atomic moves.
+     * @throws IOException
+     *             when moving the file failed.
+     */
+    void moveAtomically(final File source, final File target) throws IOException {
+        Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+            StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private byte[] hash(final byte[] content) {
+        final MessageDigest digest = FingerprintCalculator.createDigest();
+        digest.update(content);
+
+        return digest.digest();
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+
+/**
+ * Build scoped transitive closure of the public parts used by development components.
+ *
+ * The closure of a development component lists the public parts it uses directly in the order of its usage
+ * declarations followed by the closures of the development components providing them, without duplicates. Closures are
+ * memoized per development component, so sub graphs shared by many development components are resolved once per
+ * build.
+ *
+ * Usage cycles are cut when a development component is reached again while its closure is being computed. Closures of
+ * development components that are part of a cycle entered from above are not memoized since they are incomplete; they
+ * are recomputed when requested directly. A {@link java.util.concurrent.Future} based memoizer like
+ * {@link ClassPathIndex} is not used because waiting for a closure computed by another thread could deadlock on cycles.
+ *
+ * @author Dirk Weigenand
+ */
+final class PublicPartClosure {
+    /**
+     * factory for looking up the development components providing public parts.
+     */
+    private final DevelopmentComponentFactory dcFactory;
+
+    /**
+     * complete closures mapped by vendor and name of development component.
+     */
+    private final ConcurrentMap<String, List<UsedPublicPart>> closures =
+        new ConcurrentHashMap<String, List<UsedPublicPart>>();
+
+    /**
+     * Create an empty closure.
+     *
+     * @param dcFactory
+     *            factory for looking up the development components providing public parts.
+     */
+    PublicPartClosure(final DevelopmentComponentFactory dcFactory) {
+        this.dcFactory = dcFactory;
+    }
+
+    /**
+     * Returns the public parts used directly or transitively by the given development component.
+     *
+     * @param component
+     *            development component to compute the closure for.
+     * @return the public parts used by the given development component ordered by distance, direct usages first,
+     *         without duplicates. Public parts of the given development component itself are omitted.
+     */
+    List<UsedPublicPart> get(final DevelopmentComponent component) {
+        final List<UsedPublicPart> closure = new ArrayList<UsedPublicPart>();
+        final String key = getKey(component);
+
+        for (final UsedPublicPart publicPart : compute(component, new HashMap<String, Integer>()).publicParts) {
+            if (!key.equals(getKey(publicPart.getComponent()))) {
+                closure.add(publicPart);
+            }
+        }
+
+        return closure;
+    }
+
+    /**
+     * Compute the closure of the given development component.
+     *
+     * @param component
+     *            development component to compute the closure for.
+     * @param path
+     *            development components whose closures are being computed mapped to their depth on the current path.
+     * @return the closure and the lowest depth of a development component on the path that was reached again.
+     */
+    private Result compute(final DevelopmentComponent component, final Map<String, Integer> path) {
+        final String key = getKey(component);
+        final List<UsedPublicPart> memoized = closures.get(key);
+
+        if (memoized != null) {
+            return new Result(memoized, Integer.MAX_VALUE);
+        }
+
+        final Integer onPath = path.get(key);
+
+        if (onPath != null) {
+            return new Result(Collections.<UsedPublicPart> emptyList(), onPath);
+        }
+
+        final int depth = path.size();
+        path.put(key, depth);
+
+        final Map<String, UsedPublicPart> publicParts = new LinkedHashMap<String, UsedPublicPart>();
+        final List<DevelopmentComponent> used = new ArrayList<DevelopmentComponent>();
+
+        for (final PublicPartReference ppRef : component.getUsedDevelopmentComponents()) {
+            final DevelopmentComponent referencedDC = dcFactory.get(ppRef);
+
+            if (referencedDC != null) {
+                final UsedPublicPart publicPart = new UsedPublicPart(referencedDC, ppRef.getName());
+
+                if (!publicParts.containsKey(publicPart.toString())) {
+                    publicParts.put(publicPart.toString(), publicPart);
+
+                    if (!used.contains(referencedDC)) {
+                        used.add(referencedDC);
+                    }
+                }
+            }
+        }
+
+        int lowest = Integer.MAX_VALUE;
+
+        for (final DevelopmentComponent referencedDC : used) {
+            final Result result = compute(referencedDC, path);
+            lowest = Math.min(lowest, result.lowest);
+
+            for (final UsedPublicPart publicPart : result.publicParts) {
+                if (!publicParts.containsKey(publicPart.toString())) {
+                    publicParts.put(publicPart.toString(), publicPart);
+                }
+            }
+        }
+
+        path.remove(key);
+
+        final List<UsedPublicPart> closure =
+            Collections.unmodifiableList(new ArrayList<UsedPublicPart>(publicParts.values()));
+
+        if (lowest >= depth) {
+            closures.putIfAbsent(key, closure);
+
+            return new Result(closure, Integer.MAX_VALUE);
+        }
+
+        return new Result(closure, lowest);
+    }
+
+    private String getKey(final DevelopmentComponent component) {
+        return String.format("%s:%s", component.getVendor(), component.getName());
+    }
+
+    /**
+     * A closure in computation.
+     */
+    private static final class Result {
+        /**
+         * public parts in the closure.
+         */
+        private final List<UsedPublicPart> publicParts;
+
+        /**
+         * lowest depth of a development component on the path that was reached again (<code>MAX_VALUE</code> when the
+         * closure is complete).
+         */
+        private final int lowest;
+
+        Result(final List<UsedPublicPart> publicParts, final int lowest) {
+            this.publicParts = publicParts;
+            this.lowest = lowest;
+        }
+    }
+
+    /**
+     * A public part of a development component.
+     */
+    static final class UsedPublicPart {
+        /**
+         * development component providing the public part.
+         */
+        private final DevelopmentComponent component;
+
+        /**
+         * name of the public part.
+         */
+        private final String name;
+
+        UsedPublicPart(final DevelopmentComponent component, final String name) {
+            this.component = component;
+            this.name = name;
+        }
+
+        /**
+         * @return development component providing the public part.
+         */
+        DevelopmentComponent getComponent() {
+            return component;
+        }
+
+        /**
+         * @return name of the public part.
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return <code>vendor:component:public part</code>
+         */
+        @Override
+        public String toString() {
+            return String.format("%s:%s:%s", component.getVendor(), component.getName(), name);
+        }
+    }
+}
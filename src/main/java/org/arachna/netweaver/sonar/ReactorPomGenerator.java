@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.velocity.VelocityContext;
+import org.apache.velocity.context.Context;
+
+/**
+ * Generator for an aggregator pom.xml listing the <code>sonar-pom.xml</code> files of all development components
+ * to analyse as modules. Running maven on this pom analyses all development components in one reactor build.
+ *
+ * @author Dirk Weigenand
+ */
+public class ReactorPomGenerator {
+    /**
+     * name of the template used for generating aggregator poms.
+     */
+    static final String TEMPLATE = "/org/arachna/netweaver/sonar/reactor-pom.vm";
+
+    /**
+     * cache holding the parsed template for generating aggregator poms.
+     */
+    private final TemplateCache templates;
+
+    /**
+     * directory the aggregator pom will be written to.
+     */
+    private final File baseDir;
+
+    /**
+     * Create a generator for aggregator poms.
+     *
+     * @param templates
+     *            cache holding the parsed template for generating aggregator poms.
+     * @param baseDir
+     *            directory the aggregator pom will be written to. Module paths are made relative to this directory.
+     */
+    ReactorPomGenerator(final TemplateCache templates, final File baseDir) {
+        this.templates = templates;
+        this.baseDir = baseDir;
+    }
+
+    /**
+     * Generate the aggregator pom.
+     *
+     * @param name
+     *            name of the development configuration the modules belong to.
+     * @param modulePoms
+     *            absolute paths of the <code>sonar-pom.xml</code> files to aggregate.
+     * @param writer
+     *            writer to write the aggregator pom to.
+     * @throws IOException
+     *             when writing the pom failed.
+     */
+    void execute(final String name, final Collection<String> modulePoms, final Writer writer) throws IOException {
+        try {
+            templates.get(TEMPLATE).merge(createContext(name, modulePoms), writer);
+        }
+        finally {
+            writer.close();
+        }
+    }
+
+    private Context createContext(final String name, final Collection<String> modulePoms) {
+        final Context context = new VelocityContext();
+        context.put("groupId", name);
+        context.put("artifactId", "sonar-reactor");
+        context.put("name", name);
+        context.put("modules", createModules(modulePoms));
+
+        return context;
+    }
+
+    /**
+     * Make the paths of the given poms relative to the base directory of the aggregator pom.
+     *
+     * @param modulePoms
+     *            absolute paths of the <code>sonar-pom.xml</code> files to aggregate.
+     * @return paths of the given poms relative to the base directory of the aggregator pom.
+     */
+    List<String> createModules(final Collection<String> modulePoms) {
+        final Path base = baseDir.getAbsoluteFile().toPath().normalize();
+        final List<String> modules = new ArrayList<String>(modulePoms.size());
+
+        for (final String modulePom : modulePoms) {
+            final Path pom = new File(modulePom).getAbsoluteFile().toPath().normalize();
+            modules.add(base.relativize(pom).toString().replace(File.separatorChar, '/'));
+        }
+
+        return modules;
+    }
+}
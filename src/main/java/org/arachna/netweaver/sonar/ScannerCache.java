@@ -0,0 +1,217 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Persists the sonar user home of a track (<code>sonar.userHome</code>, holding the analyzers downloaded from the sonar
+ * server) between builds.
+ *
+ * The user home is kept in the workspace. When it is missing (e.g. the workspace was wiped or the build runs on another
+ * node) it is restored from a zip archive kept on the controller. After a successful analysis the archive is updated
+ * when the user home changed. The archives of all tracks share one store whose size is bounded; the least recently used
+ * archives are evicted first.
+ *
+ * @author Dirk Weigenand
+ */
+final class ScannerCache {
+    /**
+     * suffix of archives in the store.
+     */
+    private static final String SUFFIX = ".zip";
+
+    /**
+     * lock guarding eviction of archives from stores.
+     */
+    private static final Object EVICTION_LOCK = new Object();
+
+    /**
+     * folder containing the archives of all tracks.
+     */
+    private final File store;
+
+    /**
+     * maximum size of the store in bytes.
+     */
+    private final long maxSize;
+
+    /**
+     * the archive of the track.
+     */
+    private final File archive;
+
+    /**
+     * the user home in the workspace.
+     */
+    private final File userHome;
+
+    /**
+     * Create a cache for the sonar user home of a track.
+     *
+     * @param store
+     *            folder containing the archives of all tracks.
+     * @param maxSize
+     *            maximum size of the store in bytes.
+     * @param track
+     *            name identifying the track (e.g. the name of the job).
+     * @param userHome
+     *            the user home in the workspace.
+     */
+    ScannerCache(final File store, final long maxSize, final String track, final File userHome) {
+        this.store = store;
+        this.maxSize = maxSize;
+        this.userHome = userHome;
+        archive = new File(store, track.replaceAll("[^\\w.-]", "_") + SUFFIX);
+    }
+
+    /**
+     * @return the user home in the workspace.
+     */
+    File getUserHome() {
+        return userHome;
+    }
+
+    /**
+     * Restore the user home from the archive when it is missing in the workspace.
+     *
+     * @param listener
+     *            listener to log to.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    void restore(final TaskListener listener) throws InterruptedException {
+        if (userHome.isDirectory() || !archive.isFile()) {
+            return;
+        }
+
+        try {
+            new FilePath(archive).unzip(new FilePath(userHome.getParentFile()));
+            archive.setLastModified(System.currentTimeMillis());
+            listener.getLogger().println(
+                String.format("Restored sonar user home from %s (%d KB).", archive.getName(), archive.length() / 1024));
+        }
+        catch (final IOException e) {
+            listener.getLogger().println(
+                String.format("Could not restore sonar user home from %s: %s", archive, e.getMessage()));
+        }
+    }
+
+    /**
+     * Update the archive from the user home when it changed since it was archived. Evict least recently used archives
+     * afterwards until the store fits into its maximum size.
+     *
+     * @param listener
+     *            listener to log to.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    void archive(final TaskListener listener) throws InterruptedException {
+        if (!userHome.isDirectory()) {
+            return;
+        }
+
+        try {
+            if (archive.isFile() && archive.lastModified() >= getLastModified(userHome)) {
+                archive.setLastModified(System.currentTimeMillis());
+            }
+            else {
+                final File temp = new File(store, archive.getName() + ".tmp");
+                store.mkdirs();
+
+                final OutputStream out = new FileOutputStream(temp);
+
+                try {
+                    new FilePath(userHome).zip(out);
+                }
+                finally {
+                    out.close();
+                }
+
+                if (!temp.renameTo(archive)) {
+                    archive.delete();
+
+                    if (!temp.renameTo(archive)) {
+                        throw new IOException(String.format("Could not rename %s to %s.", temp, archive));
+                    }
+                }
+
+                listener.getLogger().println(
+                    String.format("Archived sonar user home to %s (%d KB).", archive.getName(), archive.length() / 1024));
+            }
+        }
+        catch (final IOException e) {
+            listener.getLogger().println(
+                String.format("Could not archive sonar user home to %s: %s", archive, e.getMessage()));
+        }
+
+        evict(listener);
+    }
+
+    /**
+     * Delete the least recently used archives (other than the archive of this track) until the store fits into its
+     * maximum size.
+     */
+    private void evict(final TaskListener listener) {
+        synchronized (EVICTION_LOCK) {
+            final File[] archives = store.listFiles();
+
+            if (archives == null) {
+                return;
+            }
+
+            Arrays.sort(archives, new Comparator<File>() {
+                @Override
+                public int compare(final File o1, final File o2) {
+                    return Long.valueOf(o1.lastModified()).compareTo(o2.lastModified());
+                }
+            });
+
+            long size = 0;
+
+            for (final File file : archives) {
+                size += file.length();
+            }
+
+            for (int i = 0; i < archives.length && size > maxSize; i++) {
+                final File candidate = archives[i];
+
+                if (candidate.getName().endsWith(SUFFIX) && !candidate.equals(archive)) {
+                    final long length = candidate.length();
+
+                    if (candidate.delete()) {
+                        size -= length;
+                        listener.getLogger().println(
+                            String.format("Evicted least recently used sonar cache %s.", candidate.getName()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the latest modification time of the given folder and the files and folders below it.
+     */
+    private long getLastModified(final File folder) {
+        long lastModified = folder.lastModified();
+        final File[] children = folder.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                lastModified =
+                    Math.max(lastModified, child.isDirectory() ? getLastModified(child) : child.lastModified());
+            }
+        }
+
+        return lastModified;
+    }
+}
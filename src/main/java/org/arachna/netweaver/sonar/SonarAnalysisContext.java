@@ -0,0 +1,312 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.Launcher;
+import hudson.model.AbstractProject;
+import hudson.model.BuildListener;
+import hudson.tasks.Maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import org.apache.commons.lang.StringUtils;
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.hudson.nwdi.NWDIBuild;
+
+/**
+ * Build scoped state shared by all {@link SonarAnalysisTask}s of one execution of {@link SonarBuilder}.
+ *
+ * @author Dirk Weigenand
+ */
+final class SonarAnalysisContext {
+    /**
+     * the build the analysis is executed for.
+     */
+    private final NWDIBuild build;
+
+    /**
+     * launcher to use for executing maven.
+     */
+    private final Launcher launcher;
+
+    /**
+     * the build's listener.
+     */
+    private final BuildListener listener;
+
+    /**
+     * generator for the <code>sonar-pom.xml</code>.
+     */
+    private final SonarPomGenerator pomGenerator;
+
+    /**
+     * helper for determining the location of development components.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * name of maven installation to use.
+     */
+    private final String mavenName;
+
+    /**
+     * indicate whether output should be buffered until the analysis of a development component is finished.
+     */
+    private final boolean bufferOutput;
+
+    /**
+     * writer for generated pom files.
+     */
+    private final PomWriter pomWriter = new PomWriter();
+
+    /**
+     * long lived maven process to execute analyses in (may be <code>null</code>).
+     */
+    private final MavenWorker mavenWorker;
+
+    /**
+     * sonar scanner CLI to analyse development components with instead of maven (may be <code>null</code>).
+     */
+    private final SonarScanner sonarScanner;
+
+    /**
+     * point in time (milliseconds since the epoch) after which no further analyses are started.
+     */
+    private final long deadline;
+
+    /**
+     * limits the number of concurrent analyses per node.
+     */
+    private final AnalysisThrottle throttle;
+
+    /**
+     * Create the context for analysing the development components of the given build.
+     *
+     * @param build
+     *            the build the analysis is executed for.
+     * @param launcher
+     *            launcher to use for executing maven.
+     * @param listener
+     *            the build's listener.
+     * @param pomGenerator
+     *            generator for the <code>sonar-pom.xml</code>.
+     * @param antHelper
+     *            helper for determining the location of development components.
+     * @param mavenName
+     *            name of maven installation to use.
+     * @param bufferOutput
+     *            <code>true</code> when output should be buffered until the analysis of a development component is
+     *            finished, <code>false</code> to write directly to the build log.
+     * @param mavenWorker
+     *            long lived maven process to execute analyses in, <code>null</code> to fork a maven JVM for each
+     *            analysis.
+     * @param sonarScanner
+     *            sonar scanner CLI to analyse development components with, <code>null</code> to use maven.
+     * @param deadline
+     *            point in time (milliseconds since the epoch) after which no further analyses are started.
+     * @param throttle
+     *            limits the number of concurrent analyses per node.
+     */
+    SonarAnalysisContext(final NWDIBuild build, final Launcher launcher, final BuildListener listener,
+        final SonarPomGenerator pomGenerator, final AntHelper antHelper, final String mavenName,
+        final boolean bufferOutput, final MavenWorker mavenWorker, final SonarScanner sonarScanner,
+        final long deadline, final AnalysisThrottle throttle) {
+        this.build = build;
+        this.launcher = launcher;
+        this.listener = listener;
+        this.pomGenerator = pomGenerator;
+        this.antHelper = antHelper;
+        this.mavenName = mavenName;
+        this.bufferOutput = bufferOutput;
+        this.mavenWorker = mavenWorker;
+        this.sonarScanner = sonarScanner;
+        this.deadline = deadline;
+        this.throttle = throttle;
+    }
+
+    /**
+     * @return the build the analysis is executed for.
+     */
+    NWDIBuild getBuild() {
+        return build;
+    }
+
+    /**
+     * @return the launcher to use for executing maven.
+     */
+    Launcher getLauncher() {
+        return launcher;
+    }
+
+    /**
+     * @return the build's listener.
+     */
+    BuildListener getListener() {
+        return listener;
+    }
+
+    /**
+     * @return the generator for the <code>sonar-pom.xml</code>.
+     */
+    SonarPomGenerator getPomGenerator() {
+        return pomGenerator;
+    }
+
+    /**
+     * @return the helper for determining the location of development components.
+     */
+    AntHelper getAntHelper() {
+        return antHelper;
+    }
+
+    /**
+     * @return the name of the maven installation to use.
+     */
+    String getMavenName() {
+        return mavenName;
+    }
+
+    /**
+     * @return <code>true</code> when output should be buffered until the analysis of a development component is
+     *         finished.
+     */
+    boolean isBufferOutput() {
+        return bufferOutput;
+    }
+
+    /**
+     * @return the writer for generated pom files.
+     */
+    PomWriter getPomWriter() {
+        return pomWriter;
+    }
+
+    /**
+     * Returns the properties to pass to maven. The project version reported to sonar is derived from the build number
+     * here instead of in the generated pom so that pom files stay identical between builds.
+     *
+     * @return properties to pass to maven (one <code>key=value</code> pair per line).
+     */
+    String getMavenProperties() {
+        return String.format("sonar.projectVersion=%s", getProjectVersion());
+    }
+
+    /**
+     * @return the project version reported to sonar.
+     */
+    String getProjectVersion() {
+        return String.format("1.0.%d-SNAPSHOT", build.getNumber());
+    }
+
+    /**
+     * Acquire a slot for running an analysis on the given node. Slots are shared fairly between the jobs analysing on
+     * the same node.
+     *
+     * @param node
+     *            name of the node the analysis runs on.
+     * @param dcListener
+     *            listener to log waiting for a slot to.
+     * @return the acquired slot.
+     * @throws InterruptedException
+     *             when the build was aborted while waiting.
+     */
+    AnalysisThrottle.Slot acquireSlot(final String node, final BuildListener dcListener) throws InterruptedException {
+        final AbstractProject<?, ?> project = build.getProject();
+
+        return throttle.acquire(node == null ? "" : node,
+            project == null ? "" : StringUtils.defaultString(project.getFullName()), dcListener);
+    }
+
+    /**
+     * @return <code>true</code> when the time budget is exhausted and no further analyses should be started.
+     */
+    boolean isOverBudget() {
+        return System.currentTimeMillis() > deadline;
+    }
+
+    /**
+     * @return the sonar scanner CLI to analyse development components with (may be <code>null</code>).
+     */
+    SonarScanner getSonarScanner() {
+        return sonarScanner;
+    }
+
+    /**
+     * @return the long lived maven process to execute analyses in (may be <code>null</code>).
+     */
+    MavenWorker getMavenWorker() {
+        return mavenWorker;
+    }
+
+    /**
+     * Execute the given goals on the given pom. The maven worker is used when configured and alive, otherwise (or
+     * when the worker dies during the analysis) a new maven JVM is forked.
+     *
+     * @param dcListener
+     *            listener receiving the maven output.
+     * @param goals
+     *            goals to execute.
+     * @param pom
+     *            absolute path of the pom to execute the goals on.
+     * @param jvmOptions
+     *            options for the maven JVM.
+     * @return <code>true</code> when the maven build succeeded, <code>false</code> otherwise.
+     * @throws IOException
+     *             when maven could not be started.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    boolean runMaven(final BuildListener dcListener, final String goals, final String pom, final String jvmOptions)
+        throws IOException, InterruptedException {
+        final AnalysisThrottle.Slot slot = acquireSlot(build.getBuiltOnStr(), dcListener);
+
+        try {
+            if (mavenWorker != null) {
+                final Boolean result =
+                    mavenWorker.run(launcher, dcListener, build.getEnvironment(dcListener), goals, pom,
+                        getMavenProperties(), jvmOptions);
+
+                if (result != null) {
+                    return result;
+                }
+            }
+
+            return new Maven(goals, mavenName, pom, getMavenProperties(), jvmOptions).perform(build, launcher,
+                dcListener);
+        }
+        finally {
+            slot.release();
+        }
+    }
+
+    /**
+     * Run the sonar scanner CLI on the given <code>sonar-project.properties</code>.
+     *
+     * @param dcListener
+     *            listener receiving the scanner output.
+     * @param settings
+     *            the <code>sonar-project.properties</code> to analyse.
+     * @param jvmOptions
+     *            options for the scanner JVM.
+     * @return <code>true</code> when the analysis succeeded, <code>false</code> otherwise.
+     * @throws IOException
+     *             when the scanner could not be started.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    boolean runScanner(final BuildListener dcListener, final File settings, final String jvmOptions)
+        throws IOException, InterruptedException {
+        final AnalysisThrottle.Slot slot = acquireSlot(build.getBuiltOnStr(), dcListener);
+
+        try {
+            return sonarScanner.run(launcher, dcListener, build.getEnvironment(dcListener), settings,
+                Collections.singletonMap("sonar.projectVersion", getProjectVersion()), jvmOptions);
+        }
+        finally {
+            slot.release();
+        }
+    }
+}
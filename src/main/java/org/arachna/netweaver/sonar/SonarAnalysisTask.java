@@ -0,0 +1,297 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+
+/**
+ * Generates the <code>sonar-pom.xml</code> for a single development component and runs the maven sonar plugin on it.
+ *
+ * When run concurrently with other tasks the console output is collected into a buffer and written to the build log in
+ * one piece after the analysis finished so that the output of different development components does not interleave.
+ *
+ * @author Dirk Weigenand
+ */
+final class SonarAnalysisTask implements Callable<Boolean> {
+    /**
+     * build scoped state shared by all tasks.
+     */
+    private final SonarAnalysisContext context;
+
+    /**
+     * the development component to analyse.
+     */
+    private final DevelopmentComponent component;
+
+    /**
+     * indicate whether only the <code>sonar-pom.xml</code> should be generated (i.e. maven is run later on an
+     * aggregator pom).
+     */
+    private final boolean generatePomOnly;
+
+    /**
+     * timing of the analysis.
+     */
+    private final DevelopmentComponentTiming timing;
+
+    /**
+     * Create a task for analysing the given development component.
+     *
+     * @param context
+     *            build scoped state shared by all tasks.
+     * @param component
+     *            the development component to analyse.
+     * @param generatePomOnly
+     *            <code>true</code> when only the <code>sonar-pom.xml</code> should be generated, <code>false</code> to
+     *            run maven on it too.
+     * @param timing
+     *            timing to record the time spent in the phases of the analysis into.
+     */
+    SonarAnalysisTask(final SonarAnalysisContext context, final DevelopmentComponent component,
+        final boolean generatePomOnly, final DevelopmentComponentTiming timing) {
+        this.context = context;
+        this.component = component;
+        this.generatePomOnly = generatePomOnly;
+        this.timing = timing;
+    }
+
+    /**
+     * Generate the <code>sonar-pom.xml</code> and run maven on it.
+     *
+     * @return <code>true</code> when all maven invocations succeeded, <code>false</code> otherwise or when the analysis
+     *         was deferred because the time budget is exhausted.
+     */
+    @Override
+    public Boolean call() throws IOException, InterruptedException {
+        if (context.isOverBudget()) {
+            timing.setStatus(DevelopmentComponentTiming.Status.DEFERRED);
+
+            return false;
+        }
+
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final BuildListener dcListener =
+            context.isBufferOutput() ? new StreamBuildListener(buffer, Charset.defaultCharset()) : context
+                .getListener();
+
+        boolean result = false;
+
+        try {
+            result = analyze(dcListener);
+
+            return result;
+        }
+        finally {
+            timing.setStatus(result ? DevelopmentComponentTiming.Status.SUCCESS
+                : DevelopmentComponentTiming.Status.FAILURE);
+
+            if (context.isBufferOutput() && buffer.size() > 0) {
+                final PrintStream logger = context.getListener().getLogger();
+
+                synchronized (logger) {
+                    logger.println(String.format("---- %s:%s ----", component.getVendor(), component.getName()));
+                    buffer.writeTo(logger);
+                    logger.flush();
+                }
+            }
+        }
+    }
+
+    private boolean analyze(final BuildListener dcListener) throws IOException, InterruptedException {
+        if (context.getSonarScanner() != null) {
+            if (context.getPomGenerator().hasBuildOutput(component) || !isAnalysed(component)) {
+                return analyzeWithScanner(dcListener);
+            }
+
+            if (context.getMavenName() == null) {
+                dcListener.getLogger().println(
+                    String.format("Component %s has no NWDI build output and no maven installation is configured to "
+                        + "compile it, the sonar scanner requires compiled classes.", component.getName()));
+
+                return false;
+            }
+
+            dcListener.getLogger().println(
+                String.format("Component %s has no NWDI build output, compiling it using maven.", component.getName()));
+        }
+        else if (context.getPomGenerator().isReuseBuildOutput() && isAnalysed(component)
+            && !context.getPomGenerator().hasBuildOutput(component)) {
+            dcListener.getLogger().println(
+                String.format("Component %s has no NWDI build output, compiling it using maven.", component.getName()));
+        }
+
+        final String pomLocation = getPomLocation(context, component);
+
+        try {
+            final StringWriter pom = new StringWriter();
+            context.getPomGenerator().execute(component, pom, timing);
+
+            final long start = System.currentTimeMillis();
+            context.getPomWriter().write(new File(pomLocation), pom.toString().getBytes("UTF-8"));
+            timing.addPomWriting(System.currentTimeMillis() - start);
+            logExcludedFiles(dcListener);
+        }
+        catch (final IOException ioe) {
+            dcListener.getLogger().println(String.format("Could not create %s:\n%s", pomLocation, ioe.getMessage()));
+            return false;
+        }
+
+        if (!isAnalysed(dcListener) || generatePomOnly) {
+            return true;
+        }
+
+        return runMaven(dcListener, pomLocation);
+    }
+
+    private void logExcludedFiles(final BuildListener dcListener) {
+        if (timing.getExcludedFiles() > 0) {
+            dcListener.getLogger().println(
+                String.format("Excluded %d files from the sonar sources.", timing.getExcludedFiles()));
+        }
+    }
+
+    /**
+     * Generate the <code>sonar-project.properties</code> and run the sonar scanner CLI on it. This skips building a
+     * maven model and resolving the <code>system</code> scoped dependencies for each development component.
+     */
+    private boolean analyzeWithScanner(final BuildListener dcListener) throws IOException, InterruptedException {
+        final File settings = new File(getPropertiesLocation(context, component));
+
+        try {
+            final StringWriter properties = new StringWriter();
+            new SonarProjectPropertiesGenerator(context.getPomGenerator()).execute(component, properties, timing);
+
+            final long start = System.currentTimeMillis();
+            context.getPomWriter().write(settings, properties.toString().getBytes("ISO-8859-1"));
+            timing.addPomWriting(System.currentTimeMillis() - start);
+            logExcludedFiles(dcListener);
+        }
+        catch (final IOException ioe) {
+            dcListener.getLogger().println(String.format("Could not create %s:\n%s", settings, ioe.getMessage()));
+            return false;
+        }
+
+        if (!isAnalysed(dcListener)) {
+            return true;
+        }
+
+        final long start = System.currentTimeMillis();
+        final boolean result =
+            context.runScanner(dcListener, settings, context.getPomGenerator().getAnalysisOptions(component)
+                .getJvmOptions());
+        timing.addMaven(System.currentTimeMillis() - start);
+
+        return result;
+    }
+
+    /**
+     * Run maven on the generated pom. Web modules are analysed in the same pass as other development components: the
+     * <code>sonar.sources</code> of the generated pom contain the <code>WebContent</code> folder next to the java
+     * sources so the scanner analyses Java and JavaScript sources in one invocation.
+     */
+    private boolean runMaven(final BuildListener dcListener, final String pomLocation) throws IOException,
+        InterruptedException {
+        final String jvmOptions = context.getPomGenerator().getAnalysisOptions(component).getJvmOptions();
+        final long start = System.currentTimeMillis();
+        final boolean result =
+            context.runMaven(dcListener, getGoals(context, Collections.singleton(component)), pomLocation, jvmOptions);
+        timing.addMaven(System.currentTimeMillis() - start);
+
+        return result;
+    }
+
+    /**
+     * Determine whether the development component is of a type with java sources (i.e. is to be analysed) and log
+     * the outcome.
+     */
+    private boolean isAnalysed(final BuildListener dcListener) {
+        if (isAnalysed(component)) {
+            dcListener.getLogger().println(
+                String.format("Component %s is of type %s.", component.getName(), component.getType()));
+
+            return true;
+        }
+
+        dcListener.getLogger().println(
+            String.format("Component %s of type %s is not analysed.", component.getName(), component.getType()));
+
+        return false;
+    }
+
+    /**
+     * Determine whether the given development component is of a type with java sources (i.e. is to be analysed).
+     *
+     * @param component
+     *            development component to examine.
+     * @return <code>true</code> when the given development component is to be analysed, <code>false</code> otherwise.
+     */
+    static boolean isAnalysed(final DevelopmentComponent component) {
+        final DevelopmentComponentType componentType = component.getType();
+
+        return DevelopmentComponentType.J2EEEjbModule.equals(componentType)
+            || DevelopmentComponentType.J2EEWebModule.equals(componentType)
+            || DevelopmentComponentType.J2EE.equals(componentType) || DevelopmentComponentType.Java.equals(componentType);
+    }
+
+    /**
+     * Returns the maven goals for analysing development components with java sources. When the output of the NWDI
+     * build is reused for all of the given development components only the sonar plugin is executed, otherwise the
+     * sources are compiled and tested first.
+     *
+     * @param context
+     *            build scoped state.
+     * @param components
+     *            development components analysed by the maven build.
+     * @return maven goals for analysing development components with java sources.
+     */
+    static String getGoals(final SonarAnalysisContext context, final Collection<DevelopmentComponent> components) {
+        for (final DevelopmentComponent component : components) {
+            if (!context.getPomGenerator().isReuseBuildOutput(component)) {
+                return "test sonar:sonar";
+            }
+        }
+
+        return "sonar:sonar";
+    }
+
+    /**
+     * Returns the location of the <code>sonar-pom.xml</code> for the given development component.
+     *
+     * @param context
+     *            build scoped state.
+     * @param component
+     *            development component to get the pom location for.
+     * @return absolute path of the <code>sonar-pom.xml</code> of the given development component.
+     */
+    static String getPomLocation(final SonarAnalysisContext context, final DevelopmentComponent component) {
+        return String.format("%s/sonar-pom.xml", context.getAntHelper().getBaseLocation(component));
+    }
+
+    /**
+     * Returns the location of the <code>sonar-project.properties</code> for the given development component.
+     *
+     * @param context
+     *            build scoped state.
+     * @param component
+     *            development component to get the properties location for.
+     * @return absolute path of the <code>sonar-project.properties</code> of the given development component.
+     */
+    static String getPropertiesLocation(final SonarAnalysisContext context, final DevelopmentComponent component) {
+        return String.format("%s/sonar-project.properties", context.getAntHelper().getBaseLocation(component));
+    }
+}
@@ -5,28 +5,54 @@ package org.arachna.netweaver.sonar;
 
 import hudson.Extension;
 import hudson.Launcher;
+import hudson.PluginWrapper;
+import hudson.Util;
+import hudson.model.Action;
 import hudson.model.BuildListener;
+import hudson.model.Executor;
+import hudson.model.Result;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
-import hudson.tasks.Maven;
 import hudson.tasks.Maven.MavenInstallation;
 import hudson.tools.ToolInstallation;
+import hudson.util.FormValidation;
 
-import java.io.FileWriter;
+import java.io.File;
 import java.io.IOException;
-import java.util.logging.Logger;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import jenkins.model.Jenkins;
+
+import net.sf.json.JSONObject;
+
+import org.apache.commons.lang.StringUtils;
 import org.arachna.ant.AntHelper;
 import org.arachna.netweaver.dc.types.DevelopmentComponent;
-import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
 import org.arachna.netweaver.hudson.nwdi.DCWithJavaSourceAcceptingFilter;
 import org.arachna.netweaver.hudson.nwdi.NWDIBuild;
 import org.arachna.netweaver.hudson.nwdi.NWDIProject;
 import org.arachna.netweaver.hudson.util.FilePathHelper;
-import org.arachna.velocity.VelocityHelper;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+import org.kohsuke.stapler.StaplerRequest;
 
 /**
  * Jenkins builder that executes the maven sonar plugin for NetWeaver
@@ -41,9 +67,111 @@ public class SonarBuilder extends Builder {
 	@Extension
 	public static final DescriptorImpl DESCRIPTOR = new DescriptorImpl();
 
+	/**
+	 * number of previous builds examined for durations of analyses.
+	 */
+	private static final int HISTORY_DEPTH = 20;
+
+	/**
+	 * number of development components whose expected duration is logged.
+	 */
+	private static final int LOGGED_SCHEDULE_ENTRIES = 10;
+
+	/**
+	 * number of development components to analyse concurrently.
+	 */
+	private int numberOfThreads;
+
+	/**
+	 * indicate whether all development components should be analysed in one
+	 * maven reactor build using an aggregator pom.
+	 */
+	private boolean useReactor;
+
+	/**
+	 * value of maven's <code>-T</code> option used for the reactor build (e.g.
+	 * <code>4</code> or <code>1C</code>). Empty for a single threaded build.
+	 */
+	private String mavenThreads;
+
+	/**
+	 * indicate whether development components whose sources, resources and
+	 * class path did not change since their last successful analysis should be
+	 * skipped.
+	 */
+	private boolean incrementalAnalysis;
+
+	/**
+	 * indicate whether sonar should analyse the class files produced by the
+	 * NWDI build instead of compiling and testing the development components
+	 * again.
+	 */
+	private boolean reuseBuildOutput;
+
+	/**
+	 * indicate whether the class path should be passed to sonar as
+	 * <code>sonar.java.libraries</code> only instead of as one
+	 * <code>system</code> scoped dependency per jar (requires
+	 * {@link #reuseBuildOutput}).
+	 */
+	private boolean compactClassPath;
+
+	/**
+	 * indicate whether poms should be written using an XML stream writer
+	 * instead of the velocity template.
+	 */
+	private boolean streamingPomWriter;
+
+	/**
+	 * path to the maven daemon client (<code>mvnd</code>) used to keep a warm
+	 * maven process for the duration of the build step. Empty to fork maven for
+	 * every analysis.
+	 */
+	private String mavenDaemon;
+
+	/**
+	 * path to the sonar scanner CLI. When set, development components are
+	 * analysed by the scanner using a generated
+	 * <code>sonar-project.properties</code> instead of maven.
+	 */
+	private String sonarScanner;
+
+	/**
+	 * indicate whether only the files changed by the activities of a build
+	 * should be analysed.
+	 */
+	private boolean changedFilesOnly;
+
+	/**
+	 * analyse all files every this many builds when only changed files are
+	 * analysed otherwise (<code>0</code> for never).
+	 */
+	private int fullAnalysisInterval;
+
+	/**
+	 * wall clock time in minutes after which no further analyses are started
+	 * (<code>0</code> for no limit). Development components not analysed in time
+	 * are deferred to the next build. A reactor build only honours the budget
+	 * while generating the poms, the maven run analysing them all is not
+	 * limited.
+	 */
+	private int timeBudget;
+
+	/**
+	 * label expression selecting the agents to distribute the analyses to.
+	 * Empty for analysing on the build's node.
+	 */
+	private String agentLabel;
+
+	/**
+	 * JVM and surefire options per development component type.
+	 */
+	private List<AnalysisOptions> analysisOptions;
+
 	/**
 	 * Data bound constructor. Used for populating a {@link SonarBuilder} instance
-	 * from form fields in <code>config.jelly</code>.
+	 * from form fields in <code>config.jelly</code>. All settings are optional
+	 * and populated using their setters.
 	 */
 	@DataBoundConstructor
 	public SonarBuilder() {
@@ -55,63 +183,150 @@ public class SonarBuilder extends Builder {
 	@Override
 	public boolean perform(final AbstractBuild<?, ?> build, final Launcher launcher, final BuildListener listener)
 			throws InterruptedException, IOException {
+		final long start = System.currentTimeMillis();
 		boolean result = true;
 		final NWDIBuild nwdiBuild = (NWDIBuild) build;
-		final AntHelper antHelper = new AntHelper(FilePathHelper.makeAbsolute(build.getWorkspace()),
-				nwdiBuild.getDevelopmentComponentFactory());
+		final String workspace = FilePathHelper.makeAbsolute(build.getWorkspace());
+		final AntHelper antHelper = createAntHelper(workspace, nwdiBuild.getDevelopmentComponentFactory());
+		final WorkspaceSnapshot snapshot = new WorkspaceSnapshot(antHelper);
 		final SonarPomGenerator pomGenerator = new SonarPomGenerator(antHelper,
-				nwdiBuild.getDevelopmentComponentFactory(), new VelocityHelper().getVelocityEngine(),
-				nwdiBuild.getNumber());
-		String pomLocation = "";
+				nwdiBuild.getDevelopmentComponentFactory(), TemplateCache.getInstance(), snapshot);
+		pomGenerator.setReuseBuildOutput(reuseBuildOutput);
+		pomGenerator.setCompactClassPath(compactClassPath);
+		pomGenerator.setStreamingPomWriter(streamingPomWriter);
+		pomGenerator.setAnalysisOptions(getAnalysisOptions());
+
+		if (compactClassPath && !reuseBuildOutput) {
+			listener.getLogger().println(
+					"The compact class path requires reusing the NWDI build output, generating system dependencies.");
+		}
 
+		final SonarScanner scanner = StringUtils.isBlank(sonarScanner) ? null : new SonarScanner(sonarScanner.trim());
 		final MavenInstallation maven = getRequiredMavenInstallation(launcher);
 
-		if (maven != null) {
-			// FIXME: get JVM options from configuration.
-			final String jvmOptions = "";
-			final String properties = "";
-
-			for (final DevelopmentComponent component : nwdiBuild
-					.getAffectedDevelopmentComponents(new DCWithJavaSourceAcceptingFilter())) {
-				if (component.getCompartment() != null) {
-					if (!antHelper.createSourceFileSets(component).isEmpty()
-							|| !component.getResourceFolders().isEmpty()) {
-						try {
-							pomLocation = String.format("%s/sonar-pom.xml", antHelper.getBaseLocation(component));
-							pomGenerator.execute(component, new FileWriter(pomLocation));
-
-							DevelopmentComponentType componentType = component.getType();
-							if (DevelopmentComponentType.J2EEEjbModule.equals(componentType)
-									|| DevelopmentComponentType.J2EEWebModule.equals(componentType)
-									|| DevelopmentComponentType.J2EE.equals(componentType) || DevelopmentComponentType.Java.equals(componentType)) {
-								result |= new Maven("test sonar:sonar", maven.getName(), pomLocation, properties,
-										jvmOptions).perform(nwdiBuild, launcher, listener);
-
-								listener.getLogger().println(String.format("Component %s is of type %s.",
-										component.getName(), component.getType()));
-							}
-
-							if (componentType.equals(DevelopmentComponentType.J2EEWebModule)) {
-								result |= new Maven("sonar:sonar", maven.getName(), pomLocation, properties, jvmOptions)
-										.perform(nwdiBuild, launcher, listener);
-
-								// + " -Dsonar.language=js"
-							} else {
-								listener.getLogger().println(
-										String.format("Component %s is not a web module.", component.getName()));
-							}
-						} catch (final IOException ioe) {
-							Logger.getLogger("NWDI-Sonar-Plugin")
-									.warning(String.format("Could not create %s:\n%s", pomLocation, ioe.getMessage()));
+		if (scanner != null && useReactor) {
+			listener.getLogger().println("Using the sonar scanner, ignoring the reactor build option.");
+		}
+
+		if (maven != null || scanner != null) {
+			final DCWithJavaSourceAcceptingFilter filter = new DCWithJavaSourceAcceptingFilter();
+			final AnalysisState state = new AnalysisState(build.getProject().getRootDir());
+			state.load(nwdiBuild.getDevelopmentComponentFactory(), filter);
+			final Set<DevelopmentComponent> deferredByPreviousBuilds = state.getDeferredByPreviousBuilds();
+
+			if (!deferredByPreviousBuilds.isEmpty()) {
+				listener.getLogger().println(String.format(
+						"Analysing %d development components deferred by previous builds first.",
+						deferredByPreviousBuilds.size()));
+			}
+
+			final boolean partialRun = changedFilesOnly && !isFullAnalysis(build);
+
+			// sonar drops the results of all files not included in a partial
+			// analysis, analyse these development components completely
+			// regardless of their fingerprints.
+			final Set<DevelopmentComponent> forced = partialRun ? Collections.<DevelopmentComponent> emptySet()
+					: state.getAnalysedPartially();
+
+			if (!forced.isEmpty()) {
+				listener.getLogger().println(String.format(
+						"Analysing %d development components analysed partially by previous builds completely.",
+						forced.size()));
+			}
+
+			final List<DevelopmentComponent> components = selectComponents(nwdiBuild, snapshot, filter,
+					deferredByPreviousBuilds, forced, listener);
+			final ScannerCache scannerCache = createScannerCache(build, workspace);
+
+			if (scannerCache != null) {
+				scannerCache.restore(listener);
+				pomGenerator.setScannerUserHome(scannerCache.getUserHome().getAbsolutePath());
+			}
+
+			final List<DevelopmentComponentTiming> timings = new ArrayList<DevelopmentComponentTiming>();
+
+			if (incrementalAnalysis && isReactorBuild()) {
+				listener.getLogger().println(
+						"The reactor build analyses all development components as one sonar project, analysing unchanged development components too.");
+			} else if (incrementalAnalysis) {
+				state.setFingerprints(skipUnchanged(pomGenerator, state.loadFingerprints(), components, forced,
+						timings, listener));
+			}
+
+			if (partialRun) {
+				listener.getLogger().println("Analysing only files changed by the activities of this build.");
+				final ChangedFiles changedFiles = new ChangedFiles(build, components);
+				pomGenerator.setChangedFiles(changedFiles);
+				state.setChangedFiles(changedFiles);
+			} else if (changedFilesOnly) {
+				listener.getLogger().println(String.format(
+						"Analysing all files (full analysis every %d builds).", fullAnalysisInterval));
+			}
+
+			final int threads = Math.min(getEffectiveNumberOfThreads(), Math.max(1, components.size()));
+			final MavenWorker mavenWorker = scanner != null || StringUtils.isBlank(mavenDaemon) ? null
+					: new MavenWorker(mavenDaemon.trim(),
+							new File(workspace, String.format(".mvnd/%d", build.getNumber())).getAbsolutePath());
+			final long deadline = timeBudget > 0 ? start + TimeUnit.MINUTES.toMillis(timeBudget) : Long.MAX_VALUE;
+			final SonarAnalysisContext context = new SonarAnalysisContext(nwdiBuild, launcher, listener, pomGenerator,
+					antHelper, maven == null ? null : maven.getName(), threads > 1, mavenWorker, scanner, deadline,
+					getThrottle());
+
+			listener.getLogger().println(
+					String.format("Analysing %d development components using %d thread(s).", components.size(), threads));
+
+			final AnalysisHistory history = new AnalysisHistory(build, HISTORY_DEPTH);
+			final DistributedAnalysis distributedAnalysis = getDistributedAnalysis(context, workspace, listener);
+
+			if ((threads > 1 || distributedAnalysis != null) && !isReactorBuild()) {
+				scheduleLongestFirst(history, components, deferredByPreviousBuilds, listener);
+			}
+
+			List<DevelopmentComponent> analysed = Collections.emptyList();
+			final List<DevelopmentComponent> deferred = new ArrayList<DevelopmentComponent>();
+			boolean completed = false;
+
+			try {
+				try {
+					analysed = distributedAnalysis != null
+							? distributedAnalysis.run(history, components, deferredByPreviousBuilds, timings, deferred)
+							: runTasks(context, components, threads, timings, deferred);
+					result = analysed.size() + deferred.size() == components.size();
+
+					if (isReactorBuild() && !analysed.isEmpty()) {
+						if (timeBudget > 0) {
+							listener.getLogger().println("The time budget does not limit the maven reactor build "
+									+ "analysing the generated poms.");
 						}
-					} else {
-						listener.getLogger().println(String.format("Component %s has empty source or resource folders.",
-								component.getName()));
+
+						result &= runReactor(context, new File(workspace), analysed, timings);
 					}
-				} else {
-					listener.getLogger().println(
-							String.format("%s:%s has no compartment!", component.getVendor(), component.getName()));
+
+					completed = true;
+				} finally {
+					if (mavenWorker != null) {
+						mavenWorker.stop(launcher, listener);
+					}
+				}
+
+				if (scannerCache != null && !analysed.isEmpty()) {
+					scannerCache.archive(listener);
 				}
+
+				listener.getLogger().println(String.format("Wrote %d analysis settings files, %d were unchanged.",
+						context.getPomWriter().getWritten(), context.getPomWriter().getReused()));
+			} finally {
+				// keep the state of this build for the next one even when
+				// the analyses were aborted.
+				state.save(completed ? analysed : Collections.<DevelopmentComponent> emptyList(), deferred, completed);
+				build.addAction(new SonarMetricsAction(timings, System.currentTimeMillis() - start));
+			}
+
+			if (!deferred.isEmpty()) {
+				listener.getLogger().println(String.format(
+						"Time budget of %d minutes exhausted, deferred the analysis of %d development components to the next build.",
+						timeBudget, deferred.size()));
+				build.setResult(Result.UNSTABLE);
 			}
 		} else {
 			listener.getLogger().println("No Maven installation found!");
@@ -120,24 +335,738 @@ public class SonarBuilder extends Builder {
 		return result;
 	}
 
-	private MavenInstallation getRequiredMavenInstallation(final Launcher launcher)
+	/**
+	 * Select the development components to analyse: those deferred by
+	 * previous builds, those affected by the build and the given forced ones
+	 * which have a compartment and source or resource folders.
+	 * 
+	 * @param build
+	 *            the build to analyse the development components of.
+	 * @param snapshot
+	 *            snapshot of the workspace used for finding source folders.
+	 * @param filter
+	 *            filter accepting development components to analyse.
+	 * @param deferredByPreviousBuilds
+	 *            development components deferred by previous builds.
+	 * @param forced
+	 *            development components to analyse completely.
+	 * @param listener
+	 *            the build's listener.
+	 * @return the development components to analyse.
+	 */
+	private List<DevelopmentComponent> selectComponents(final NWDIBuild build, final WorkspaceSnapshot snapshot,
+			final DCWithJavaSourceAcceptingFilter filter, final Set<DevelopmentComponent> deferredByPreviousBuilds,
+			final Set<DevelopmentComponent> forced, final BuildListener listener) {
+		final Set<DevelopmentComponent> candidates = new LinkedHashSet<DevelopmentComponent>(
+				deferredByPreviousBuilds);
+		candidates.addAll(build.getAffectedDevelopmentComponents(filter));
+		candidates.addAll(forced);
+
+		final List<DevelopmentComponent> components = new ArrayList<DevelopmentComponent>();
+
+		for (final DevelopmentComponent component : candidates) {
+			if (component.getCompartment() != null) {
+				if (!snapshot.getSourceFileSets(component).isEmpty() || !component.getResourceFolders().isEmpty()) {
+					components.add(component);
+				} else {
+					listener.getLogger().println(String.format("Component %s has empty source or resource folders.",
+							component.getName()));
+				}
+			} else {
+				listener.getLogger().println(
+						String.format("%s:%s has no compartment!", component.getVendor(), component.getName()));
+			}
+		}
+
+		return components;
+	}
+
+	/**
+	 * Remove the development components unchanged since their last successful
+	 * analysis from the given list and record them as skipped.
+	 * 
+	 * @param pomGenerator
+	 *            generator used for determining the class path and the
+	 *            source and resource folders.
+	 * @param fingerprintStore
+	 *            fingerprints of the last successful analyses.
+	 * @param components
+	 *            development components to analyse, unchanged ones are
+	 *            removed.
+	 * @param forced
+	 *            development components to analyse even when unchanged.
+	 * @param timings
+	 *            timings to add the skipped development components to.
+	 * @param listener
+	 *            the build's listener.
+	 * @return the fingerprints of the remaining development components.
+	 * @throws IOException
+	 *             when a file could not be read.
+	 * @throws InterruptedException
+	 *             when the build was aborted.
+	 */
+	private Map<DevelopmentComponent, String> skipUnchanged(final SonarPomGenerator pomGenerator,
+			final FingerprintStore fingerprintStore, final List<DevelopmentComponent> components,
+			final Set<DevelopmentComponent> forced, final List<DevelopmentComponentTiming> timings,
+			final BuildListener listener) throws IOException, InterruptedException {
+		final Map<DevelopmentComponent, String> fingerprints = calculateFingerprints(pomGenerator, fingerprintStore,
+				components, forced, listener);
+
+		for (final DevelopmentComponent component : components) {
+			if (!fingerprints.containsKey(component)) {
+				final DevelopmentComponentTiming timing = new DevelopmentComponentTiming(component);
+				timing.setStatus(DevelopmentComponentTiming.Status.SKIPPED);
+				timings.add(timing);
+			}
+		}
+
+		components.retainAll(fingerprints.keySet());
+
+		return fingerprints;
+	}
+
+	/**
+	 * Calculate the fingerprints of the given development components and
+	 * determine those that changed since their last successful analysis.
+	 * 
+	 * @param pomGenerator
+	 *            generator used for determining the class path and the
+	 *            source and resource folders.
+	 * @param fingerprintStore
+	 *            fingerprints of the last successful analyses.
+	 * @param components
+	 *            development components to calculate fingerprints for.
+	 * @param forced
+	 *            development components to analyse even when unchanged.
+	 * @param listener
+	 *            the build's listener.
+	 * @return the fingerprints of the changed and forced development
+	 *         components.
+	 * @throws IOException
+	 *             when a file could not be read.
+	 * @throws InterruptedException
+	 *             when the build was aborted.
+	 */
+	private Map<DevelopmentComponent, String> calculateFingerprints(final SonarPomGenerator pomGenerator,
+			final FingerprintStore fingerprintStore,
+			final List<DevelopmentComponent> components, final Set<DevelopmentComponent> forced,
+			final BuildListener listener)
+			throws IOException, InterruptedException {
+		final Map<DevelopmentComponent, String> changed = new LinkedHashMap<DevelopmentComponent, String>();
+		final FingerprintCalculator calculator = new FingerprintCalculator(pomGenerator, String.format("%s|%s",
+				getPluginVersion(), StringUtils.isBlank(sonarScanner) ? "maven" : "scanner"),
+				Runtime.getRuntime().availableProcessors());
+
+		try {
+			for (final DevelopmentComponent component : components) {
+				final String fingerprint = calculator.calculate(component);
+
+				if (!forced.contains(component) && fingerprintStore.isUnchanged(component, fingerprint)) {
+					listener.getLogger().println(String.format(
+							"Component %s is unchanged since its last analysis, skipping.", component.getName()));
+				} else {
+					changed.put(component, fingerprint);
+				}
+			}
+		} finally {
+			calculator.shutdown();
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Create the distribution of analyses to the agents selected by
+	 * {@link #agentLabel}.
+	 * 
+	 * @param context
+	 *            build scoped state.
+	 * @param workspace
+	 *            absolute path of the build's workspace.
+	 * @param listener
+	 *            the build's listener.
+	 * @return the distribution of analyses or <code>null</code> when the
+	 *         analyses should be run on the build's node.
+	 */
+	private DistributedAnalysis getDistributedAnalysis(final SonarAnalysisContext context, final String workspace,
+			final BuildListener listener) {
+		if (StringUtils.isBlank(agentLabel)) {
+			return null;
+		}
+
+		if (isReactorBuild()) {
+			listener.getLogger().println("Using a reactor build, ignoring the agent label.");
+
+			return null;
+		}
+
+		final DistributedAnalysis distributedAnalysis = new DistributedAnalysis(context, workspace,
+				agentLabel.trim());
+
+		if (distributedAnalysis.getAgents().isEmpty()) {
+			listener.getLogger().println(
+					String.format("No online agents match '%s', analysing on the build's node.", agentLabel));
+
+			return null;
+		}
+
+		return distributedAnalysis;
+	}
+
+	/**
+	 * Order the given development components by the duration of their last
+	 * analysis, longest first, so that large development components do not
+	 * end up as stragglers when analysed concurrently. The resulting order is
+	 * written to the build log.
+	 * 
+	 * @param history
+	 *            durations of analyses in previous builds.
+	 * @param components
+	 *            development components to order.
+	 * @param prioritized
+	 *            development components to schedule before all others (i.e.
+	 *            those deferred by previous builds).
+	 * @param listener
+	 *            the build's listener.
+	 */
+	private void scheduleLongestFirst(final AnalysisHistory history, final List<DevelopmentComponent> components,
+			final Collection<DevelopmentComponent> prioritized, final BuildListener listener) {
+		final List<DevelopmentComponent> sorted = history.sortLongestFirst(components, prioritized);
+		components.clear();
+		components.addAll(sorted);
+
+		listener.getLogger().println("Scheduling development components by duration of their last analysis:");
+
+		for (int i = 0; i < components.size() && i < LOGGED_SCHEDULE_ENTRIES; i++) {
+			final DevelopmentComponent component = components.get(i);
+			listener.getLogger().println(String.format("  %s:%s %s", component.getVendor(), component.getName(),
+					history.isKnown(component) ? Util.getTimeSpanString(history.getExpectedDuration(component))
+							: "(no previous analysis)"));
+		}
+
+		if (components.size() > LOGGED_SCHEDULE_ENTRIES) {
+			listener.getLogger().println(
+					String.format("  ... and %d more.", components.size() - LOGGED_SCHEDULE_ENTRIES));
+		}
+	}
+
+	/**
+	 * Run a {@link SonarAnalysisTask} for each of the given development
+	 * components using a pool of the given size. In reactor mode the tasks only
+	 * generate the <code>sonar-pom.xml</code> files.
+	 * 
+	 * @param context
+	 *            build scoped state shared by all tasks.
+	 * @param components
+	 *            development components to analyse.
+	 * @param threads
+	 *            number of threads to use.
+	 * @param timings
+	 *            list to add the timings of the analysed development components
+	 *            to.
+	 * @param deferred
+	 *            list to add the development components to whose analysis was
+	 *            not started because the time budget was exhausted.
+	 * @return the development components whose task succeeded.
+	 * @throws InterruptedException
+	 *             when the build was aborted.
+	 */
+	private List<DevelopmentComponent> runTasks(final SonarAnalysisContext context,
+			final List<DevelopmentComponent> components, final int threads,
+			final List<DevelopmentComponentTiming> timings, final List<DevelopmentComponent> deferred)
+			throws InterruptedException {
+		final Executor executor = Executor.currentExecutor();
+		final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+		final List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+		final List<DevelopmentComponentTiming> taskTimings = new ArrayList<DevelopmentComponentTiming>();
+		final List<DevelopmentComponent> succeeded = new ArrayList<DevelopmentComponent>();
+
+		try {
+			for (final DevelopmentComponent component : components) {
+				final DevelopmentComponentTiming timing = new DevelopmentComponentTiming(component);
+				timings.add(timing);
+				taskTimings.add(timing);
+				results.add(executorService
+						.submit(impersonate(executor, new SonarAnalysisTask(context, component, isReactorBuild(), timing))));
+			}
+
+			for (int i = 0; i < results.size(); i++) {
+				try {
+					if (results.get(i).get()) {
+						succeeded.add(components.get(i));
+					} else if (DevelopmentComponentTiming.Status.DEFERRED.equals(taskTimings.get(i).getStatus())) {
+						deferred.add(components.get(i));
+					}
+				} catch (final ExecutionException e) {
+					context.getListener().error(String.format("Sonar analysis of %s failed: %s",
+							components.get(i).getName(), e.getCause()));
+				}
+			}
+		} finally {
+			executorService.shutdownNow();
+		}
+
+		return succeeded;
+	}
+
+	/**
+	 * Generate an aggregator pom for the given development components into the
+	 * workspace and run maven once on it. Only development components of a type
+	 * with java sources are listed as modules.
+	 * 
+	 * The time budget does not apply to this maven run: it analyses all
+	 * modules as one sonar project and can not be stopped part way without
+	 * losing the results of the modules already analysed.
+	 * 
+	 * @param context
+	 *            build scoped state.
+	 * @param workspace
+	 *            the build's workspace.
+	 * @param components
+	 *            development components whose <code>sonar-pom.xml</code> was
+	 *            generated.
+	 * @param timings
+	 *            list to add the timing of the reactor build to.
+	 * @return <code>true</code> when the maven build succeeded,
+	 *         <code>false</code> otherwise.
+	 * @throws IOException
+	 *             when writing the aggregator pom failed.
+	 * @throws InterruptedException
+	 *             when the build was aborted.
+	 */
+	private boolean runReactor(final SonarAnalysisContext context, final File workspace,
+			final List<DevelopmentComponent> components, final List<DevelopmentComponentTiming> timings)
+			throws IOException, InterruptedException {
+		final List<String> modulePoms = new ArrayList<String>(components.size());
+		final List<DevelopmentComponent> modules = new ArrayList<DevelopmentComponent>(components.size());
+		String name = null;
+
+		for (final DevelopmentComponent component : components) {
+			if (SonarAnalysisTask.isAnalysed(component)) {
+				modules.add(component);
+				modulePoms.add(SonarAnalysisTask.getPomLocation(context, component));
+				name = component.getCompartment().getDevelopmentConfiguration().getName();
+			}
+		}
+
+		if (modulePoms.isEmpty()) {
+			context.getListener().getLogger().println("No development components with java sources to analyse.");
+
+			return true;
+		}
+
+		final File reactorPom = new File(workspace, "sonar-reactor-pom.xml");
+		final DevelopmentComponentTiming timing = new DevelopmentComponentTiming(name, reactorPom.getName(), "reactor");
+		timings.add(timing);
+
+		long start = System.currentTimeMillis();
+		final StringWriter pom = new StringWriter();
+		new ReactorPomGenerator(TemplateCache.getInstance(), workspace).execute(name, modulePoms, pom);
+		timing.addTemplateRendering(System.currentTimeMillis() - start);
+
+		start = System.currentTimeMillis();
+		context.getPomWriter().write(reactorPom, pom.toString().getBytes("UTF-8"));
+		timing.addPomWriting(System.currentTimeMillis() - start);
+
+		String targets = SonarAnalysisTask.getGoals(context, modules);
+
+		if (!StringUtils.isBlank(mavenThreads)) {
+			targets = String.format("-T %s %s", mavenThreads.trim(), targets);
+		}
+
+		context.getListener().getLogger().println(
+				String.format("Running sonar on %d modules using %s.", modulePoms.size(), reactorPom.getName()));
+
+		start = System.currentTimeMillis();
+		final boolean result =
+				context.runMaven(context.getListener(), targets, reactorPom.getAbsolutePath(), context
+						.getPomGenerator().getAnalysisOptions(null).getJvmOptions());
+		timing.addMaven(System.currentTimeMillis() - start);
+		timing.setStatus(result ? DevelopmentComponentTiming.Status.SUCCESS : DevelopmentComponentTiming.Status.FAILURE);
+
+		return result;
+	}
+
+	/**
+	 * Let the given task run in the context of the executor running the build
+	 * so that the environment of the build's node is available to maven.
+	 * 
+	 * @param executor
+	 *            executor running the build (may be <code>null</code>).
+	 * @param task
+	 *            task to execute.
+	 * @return the task wrapped to impersonate the given executor.
+	 */
+	@SuppressWarnings("unchecked")
+	private Callable<Boolean> impersonate(final Executor executor, final Callable<Boolean> task) {
+		if (executor == null) {
+			return task;
+		}
+
+		return executor.newImpersonatingProxy(Callable.class, task);
+	}
+
+	/**
+	 * Returns the number of development components to analyse concurrently.
+	 * 
+	 * @return the number of development components to analyse concurrently.
+	 */
+	public int getNumberOfThreads() {
+		return numberOfThreads;
+	}
+
+	/**
+	 * @param numberOfThreads
+	 *            number of development components to analyse concurrently.
+	 */
+	@DataBoundSetter
+	public void setNumberOfThreads(final int numberOfThreads) {
+		this.numberOfThreads = numberOfThreads;
+	}
+
+	/**
+	 * @return <code>true</code> when all development components should be
+	 *         analysed in one maven reactor build.
+	 */
+	public boolean isUseReactor() {
+		return useReactor;
+	}
+
+	/**
+	 * @param useReactor
+	 *            analyse all development components in one maven reactor build.
+	 */
+	@DataBoundSetter
+	public void setUseReactor(final boolean useReactor) {
+		this.useReactor = useReactor;
+	}
+
+	/**
+	 * @return value of maven's <code>-T</code> option used for the reactor
+	 *         build.
+	 */
+	public String getMavenThreads() {
+		return mavenThreads;
+	}
+
+	/**
+	 * @param mavenThreads
+	 *            value of maven's <code>-T</code> option used for the reactor
+	 *            build.
+	 */
+	@DataBoundSetter
+	public void setMavenThreads(final String mavenThreads) {
+		this.mavenThreads = mavenThreads;
+	}
+
+	/**
+	 * @return <code>true</code> when development components that did not
+	 *         change since their last successful analysis should be skipped.
+	 */
+	public boolean isIncrementalAnalysis() {
+		return incrementalAnalysis;
+	}
+
+	/**
+	 * @param incrementalAnalysis
+	 *            skip development components that did not change since their last
+	 *            successful analysis.
+	 */
+	@DataBoundSetter
+	public void setIncrementalAnalysis(final boolean incrementalAnalysis) {
+		this.incrementalAnalysis = incrementalAnalysis;
+	}
+
+	/**
+	 * @return <code>true</code> when sonar should analyse the class files
+	 *         produced by the NWDI build instead of compiling and testing the
+	 *         development components again.
+	 */
+	public boolean isReuseBuildOutput() {
+		return reuseBuildOutput;
+	}
+
+	/**
+	 * @param reuseBuildOutput
+	 *            analyse the class files produced by the NWDI build instead of
+	 *            compiling and testing the development components again.
+	 */
+	@DataBoundSetter
+	public void setReuseBuildOutput(final boolean reuseBuildOutput) {
+		this.reuseBuildOutput = reuseBuildOutput;
+	}
+
+	/**
+	 * @return <code>true</code> when the class path should be passed to sonar
+	 *         as <code>sonar.java.libraries</code> only.
+	 */
+	public boolean isCompactClassPath() {
+		return compactClassPath;
+	}
+
+	/**
+	 * @param compactClassPath
+	 *            pass the class path as <code>sonar.java.libraries</code> only
+	 *            instead of as one dependency per jar.
+	 */
+	@DataBoundSetter
+	public void setCompactClassPath(final boolean compactClassPath) {
+		this.compactClassPath = compactClassPath;
+	}
+
+	/**
+	 * @return <code>true</code> when poms should be written using an XML
+	 *         stream writer instead of the velocity template.
+	 */
+	public boolean isStreamingPomWriter() {
+		return streamingPomWriter;
+	}
+
+	/**
+	 * @param streamingPomWriter
+	 *            write poms using an XML stream writer instead of the velocity
+	 *            template.
+	 */
+	@DataBoundSetter
+	public void setStreamingPomWriter(final boolean streamingPomWriter) {
+		this.streamingPomWriter = streamingPomWriter;
+	}
+
+	/**
+	 * @return path to the maven daemon client used to keep a warm maven
+	 *         process for the duration of the build step.
+	 */
+	public String getMavenDaemon() {
+		return mavenDaemon;
+	}
+
+	/**
+	 * @param mavenDaemon
+	 *            path to the maven daemon client used to keep a warm maven
+	 *            process for the duration of the build step.
+	 */
+	@DataBoundSetter
+	public void setMavenDaemon(final String mavenDaemon) {
+		this.mavenDaemon = mavenDaemon;
+	}
+
+	/**
+	 * @return path to the sonar scanner CLI used instead of maven.
+	 */
+	public String getSonarScanner() {
+		return sonarScanner;
+	}
+
+	/**
+	 * @param sonarScanner
+	 *            path to the sonar scanner CLI used instead of maven.
+	 */
+	@DataBoundSetter
+	public void setSonarScanner(final String sonarScanner) {
+		this.sonarScanner = sonarScanner;
+	}
+
+	/**
+	 * @return <code>true</code> when only the files changed by the activities
+	 *         of a build should be analysed.
+	 */
+	public boolean isChangedFilesOnly() {
+		return changedFilesOnly;
+	}
+
+	/**
+	 * @param changedFilesOnly
+	 *            analyse only the files changed by the activities of a build.
+	 */
+	@DataBoundSetter
+	public void setChangedFilesOnly(final boolean changedFilesOnly) {
+		this.changedFilesOnly = changedFilesOnly;
+	}
+
+	/**
+	 * @return number of builds after which all files are analysed when only
+	 *         changed files are analysed otherwise.
+	 */
+	public int getFullAnalysisInterval() {
+		return fullAnalysisInterval;
+	}
+
+	/**
+	 * @param fullAnalysisInterval
+	 *            analyse all files every this many builds.
+	 */
+	@DataBoundSetter
+	public void setFullAnalysisInterval(final int fullAnalysisInterval) {
+		this.fullAnalysisInterval = fullAnalysisInterval;
+	}
+
+	/**
+	 * @return wall clock time in minutes after which no further analyses are
+	 *         started (<code>0</code> for no limit).
+	 */
+	public int getTimeBudget() {
+		return timeBudget;
+	}
+
+	/**
+	 * @param timeBudget
+	 *            wall clock time in minutes after which no further analyses are
+	 *            started.
+	 */
+	@DataBoundSetter
+	public void setTimeBudget(final int timeBudget) {
+		this.timeBudget = timeBudget;
+	}
+
+	/**
+	 * @return label expression selecting the agents to distribute the
+	 *         analyses to.
+	 */
+	public String getAgentLabel() {
+		return agentLabel;
+	}
+
+	/**
+	 * @param agentLabel
+	 *            label expression selecting the agents to distribute the analyses
+	 *            to.
+	 */
+	@DataBoundSetter
+	public void setAgentLabel(final String agentLabel) {
+		this.agentLabel = agentLabel;
+	}
+
+	/**
+	 * @return JVM and surefire options per development component type.
+	 */
+	public List<AnalysisOptions> getAnalysisOptions() {
+		return analysisOptions == null ? Collections.<AnalysisOptions> emptyList() : analysisOptions;
+	}
+
+	/**
+	 * @param analysisOptions
+	 *            JVM and surefire options per development component type.
+	 */
+	@DataBoundSetter
+	public void setAnalysisOptions(final List<AnalysisOptions> analysisOptions) {
+		this.analysisOptions = analysisOptions;
+	}
+
+	/**
+	 * Determine whether all files should be analysed in the given build
+	 * although only changed files should be analysed otherwise.
+	 * 
+	 * @param build
+	 *            the current build.
+	 * @return <code>true</code> when the given build should analyse all files.
+	 */
+	private boolean isFullAnalysis(final AbstractBuild<?, ?> build) {
+		return fullAnalysisInterval > 0 && build.getNumber() % fullAnalysisInterval == 0;
+	}
+
+	/**
+	 * Returns whether the development components are analysed in one maven
+	 * reactor build. The reactor build is not available when the sonar scanner
+	 * is used.
+	 * 
+	 * @return <code>true</code> when a maven reactor build is used.
+	 */
+	private boolean isReactorBuild() {
+		return useReactor && StringUtils.isBlank(sonarScanner);
+	}
+
+	/**
+	 * Returns the number of threads to use. Configurations saved before the
+	 * option was introduced analyse one development component at a time.
+	 * 
+	 * @return number of threads to use for analysis (at least 1).
+	 */
+	private int getEffectiveNumberOfThreads() {
+		return Math.max(1, numberOfThreads);
+	}
+
+	/**
+	 * @return version of this plugin (empty when it cannot be determined).
+	 */
+	String getPluginVersion() {
+		final Jenkins jenkins = Jenkins.getInstance();
+		final PluginWrapper plugin = jenkins == null ? null : jenkins.getPluginManager().whichPlugin(getClass());
+
+		return plugin == null ? "" : plugin.getVersion();
+	}
+
+	/**
+	 * Create the helper for determining the location of development
+	 * components in the given workspace.
+	 * 
+	 * @param workspace
+	 *            absolute path of the build's workspace.
+	 * @param dcFactory
+	 *            registry of the development components of the build.
+	 * @return the helper for determining the location of development
+	 *         components.
+	 */
+	AntHelper createAntHelper(final String workspace, final DevelopmentComponentFactory dcFactory) {
+		return new AntHelper(workspace, dcFactory);
+	}
+
+	/**
+	 * @return limits the number of concurrent analyses per node across all
+	 *         jobs.
+	 */
+	AnalysisThrottle getThrottle() {
+		return getDescriptor().getThrottle();
+	}
+
+	/**
+	 * Create the cache persisting the sonar user home of the given build's
+	 * job.
+	 * 
+	 * @param build
+	 *            the current build.
+	 * @param workspace
+	 *            absolute path of the build's workspace.
+	 * @return the cache or <code>null</code> when the sonar user home should
+	 *         not be persisted.
+	 */
+	ScannerCache createScannerCache(final AbstractBuild<?, ?> build, final String workspace) {
+		return getDescriptor().createScannerCache(build, workspace);
+	}
+
+	/**
+	 * Returns the maven installation to use: the first existing installation
+	 * meeting maven 3, otherwise the first configured installation.
+	 * 
+	 * @param launcher
+	 *            launcher used for determining the maven version.
+	 * @return the maven installation to use or <code>null</code> when none is
+	 *         configured.
+	 * @throws IOException
+	 *             when the maven version could not be determined.
+	 * @throws InterruptedException
+	 *             when the build was aborted.
+	 */
+	MavenInstallation getRequiredMavenInstallation(final Launcher launcher)
 			throws IOException, InterruptedException {
 		final MavenInstallation.DescriptorImpl descriptor = ToolInstallation.all()
 				.get(MavenInstallation.DescriptorImpl.class);
 		final MavenInstallation[] installations = descriptor.getInstallations();
-		MavenInstallation maven = null;
 
 		for (final MavenInstallation installation : installations) {
 			if (installation.getExists() && installation.meetsMavenReqVersion(launcher, MavenInstallation.MAVEN_30)) {
-				maven = installation;
+				return installation;
 			}
 		}
 
-		if (installations.length > 0) {
-			maven = installations[0];
-		}
+		return installations.length > 0 ? installations[0] : null;
+	}
 
-		return maven;
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Collection<? extends Action> getProjectActions(final AbstractProject<?, ?> project) {
+		return Collections.singletonList(new SonarTrendAction(project));
 	}
 
 	/**
@@ -148,16 +1077,300 @@ public class SonarBuilder extends Builder {
 		return DESCRIPTOR;
 	}
 
+	/**
+	 * State of the analyses persisted in the job's folder between builds: the
+	 * development components deferred by the time budget, those analysed
+	 * partially and the fingerprints of the last successful analyses.
+	 */
+	private static final class AnalysisState {
+		/**
+		 * development components deferred by the time budget.
+		 */
+		private final AnalysisBacklog backlog;
+
+		/**
+		 * development components analysed only partially.
+		 */
+		private final AnalysisBacklog partialAnalyses;
+
+		/**
+		 * fingerprints of the last successful analyses.
+		 */
+		private final FingerprintStore fingerprintStore;
+
+		/**
+		 * development components deferred by previous builds.
+		 */
+		private final Set<DevelopmentComponent> deferredByPreviousBuilds = new LinkedHashSet<DevelopmentComponent>();
+
+		/**
+		 * development components whose last analysis was partial.
+		 */
+		private final Set<DevelopmentComponent> analysedPartially = new LinkedHashSet<DevelopmentComponent>();
+
+		/**
+		 * fingerprints of the development components to analyse
+		 * (<code>null</code> when the analysis is not incremental).
+		 */
+		private Map<DevelopmentComponent, String> fingerprints;
+
+		/**
+		 * changed files when only those are analysed (<code>null</code>
+		 * otherwise).
+		 */
+		private ChangedFiles changedFiles;
+
+		/**
+		 * Create the state persisted in the given folder.
+		 * 
+		 * @param rootDir
+		 *            the job's folder.
+		 */
+		AnalysisState(final File rootDir) {
+			backlog = new AnalysisBacklog(new File(rootDir, "sonar-backlog.txt"));
+			partialAnalyses = new AnalysisBacklog(new File(rootDir, "sonar-partial.txt"));
+			fingerprintStore = new FingerprintStore(new File(rootDir, "sonar-fingerprints.properties"));
+		}
+
+		/**
+		 * Load the development components deferred or analysed partially by
+		 * previous builds which are still accepted by the given filter.
+		 * 
+		 * @param dcFactory
+		 *            registry of development components.
+		 * @param filter
+		 *            filter accepting development components to analyse.
+		 * @throws IOException
+		 *             when the state could not be read.
+		 */
+		void load(final DevelopmentComponentFactory dcFactory, final DCWithJavaSourceAcceptingFilter filter)
+				throws IOException {
+			load(backlog, dcFactory, filter, deferredByPreviousBuilds);
+			load(partialAnalyses, dcFactory, filter, analysedPartially);
+		}
+
+		private void load(final AnalysisBacklog file, final DevelopmentComponentFactory dcFactory,
+				final DCWithJavaSourceAcceptingFilter filter, final Set<DevelopmentComponent> components)
+				throws IOException {
+			for (final DevelopmentComponent component : file.load(dcFactory)) {
+				if (filter.accept(component)) {
+					components.add(component);
+				}
+			}
+		}
+
+		/**
+		 * @return the fingerprints of the last successful analyses.
+		 * @throws IOException
+		 *             when the fingerprints could not be read.
+		 */
+		FingerprintStore loadFingerprints() throws IOException {
+			fingerprintStore.load();
+
+			return fingerprintStore;
+		}
+
+		/**
+		 * @return development components deferred by previous builds.
+		 */
+		Set<DevelopmentComponent> getDeferredByPreviousBuilds() {
+			return deferredByPreviousBuilds;
+		}
+
+		/**
+		 * @return development components whose last analysis was partial.
+		 */
+		Set<DevelopmentComponent> getAnalysedPartially() {
+			return analysedPartially;
+		}
+
+		/**
+		 * @param fingerprints
+		 *            fingerprints of the development components to analyse.
+		 */
+		void setFingerprints(final Map<DevelopmentComponent, String> fingerprints) {
+			this.fingerprints = fingerprints;
+		}
+
+		/**
+		 * @param changedFiles
+		 *            changed files when only those are analysed.
+		 */
+		void setChangedFiles(final ChangedFiles changedFiles) {
+			this.changedFiles = changedFiles;
+		}
+
+		/**
+		 * Save the state for the next build.
+		 * 
+		 * @param analysed
+		 *            development components analysed by this build.
+		 * @param deferred
+		 *            development components deferred to the next build.
+		 * @param completed
+		 *            <code>false</code> when the analyses were aborted.
+		 *            Development components deferred by previous builds
+		 *            are kept in the backlog then.
+		 * @throws IOException
+		 *             when the state could not be written.
+		 */
+		void save(final Collection<DevelopmentComponent> analysed, final Collection<DevelopmentComponent> deferred,
+				final boolean completed) throws IOException {
+			for (final DevelopmentComponent component : analysed) {
+				if (changedFiles != null && changedFiles.isPartial(component)) {
+					analysedPartially.add(component);
+				} else {
+					analysedPartially.remove(component);
+
+					// the fingerprint of a partial analysis must not
+					// suppress the complete analysis of the next full run.
+					if (fingerprints != null) {
+						fingerprintStore.put(component, fingerprints.get(component));
+					}
+				}
+			}
+
+			if (fingerprints != null) {
+				fingerprintStore.save();
+			}
+
+			partialAnalyses.save(analysedPartially);
+
+			final Set<DevelopmentComponent> remaining = new LinkedHashSet<DevelopmentComponent>(deferred);
+
+			if (!completed) {
+				remaining.addAll(deferredByPreviousBuilds);
+			}
+
+			backlog.save(remaining);
+		}
+	}
+
 	/**
 	 * Descriptor for {@link SonarBuilder}.
 	 */
 	public static final class DescriptorImpl extends BuildStepDescriptor<Builder> {
+		/**
+		 * maximum number of sonar analyses running concurrently on a node
+		 * across all jobs (<code>0</code> for no limit).
+		 */
+		private int maxConcurrentAnalysesPerNode;
+
+		/**
+		 * maximum size in MB of the archived sonar user homes of all jobs
+		 * (<code>0</code> for not persisting the sonar user home).
+		 */
+		private int scannerCacheSize;
+
+		/**
+		 * limits the number of concurrent analyses per node.
+		 */
+		private final transient AnalysisThrottle throttle = new AnalysisThrottle();
+
 		/**
 		 * Create descriptor for NWDI-CheckStyle-Builder and load global configuration
 		 * data.
 		 */
 		public DescriptorImpl() {
 			load();
+			throttle.setLimit(maxConcurrentAnalysesPerNode);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public boolean configure(final StaplerRequest req, final JSONObject json) throws FormException {
+			req.bindJSON(this, json);
+			save();
+
+			return true;
+		}
+
+		/**
+		 * @return maximum number of sonar analyses running concurrently on a
+		 *         node across all jobs (<code>0</code> for no limit).
+		 */
+		public int getMaxConcurrentAnalysesPerNode() {
+			return maxConcurrentAnalysesPerNode;
+		}
+
+		/**
+		 * @param maxConcurrentAnalysesPerNode
+		 *            maximum number of sonar analyses running concurrently on
+		 *            a node across all jobs (<code>0</code> for no limit).
+		 */
+		public void setMaxConcurrentAnalysesPerNode(final int maxConcurrentAnalysesPerNode) {
+			this.maxConcurrentAnalysesPerNode = maxConcurrentAnalysesPerNode;
+			throttle.setLimit(maxConcurrentAnalysesPerNode);
+		}
+
+		/**
+		 * @return maximum size in MB of the archived sonar user homes of all
+		 *         jobs (<code>0</code> for not persisting the sonar user
+		 *         home).
+		 */
+		public int getScannerCacheSize() {
+			return scannerCacheSize;
+		}
+
+		/**
+		 * @param scannerCacheSize
+		 *            maximum size in MB of the archived sonar user homes of
+		 *            all jobs (<code>0</code> for not persisting the sonar
+		 *            user home).
+		 */
+		public void setScannerCacheSize(final int scannerCacheSize) {
+			this.scannerCacheSize = scannerCacheSize;
+		}
+
+		/**
+		 * Create the cache persisting the sonar user home of the given build's
+		 * job.
+		 * 
+		 * @param build
+		 *            the current build.
+		 * @param workspace
+		 *            absolute path of the build's workspace.
+		 * @return the cache or <code>null</code> when the sonar user home
+		 *         should not be persisted.
+		 */
+		ScannerCache createScannerCache(final AbstractBuild<?, ?> build, final String workspace) {
+			if (scannerCacheSize <= 0) {
+				return null;
+			}
+
+			return new ScannerCache(new File(Jenkins.getInstance().getRootDir(), "sonar-scanner-cache"),
+					scannerCacheSize * 1024L * 1024L, build.getProject().getFullName(), new File(workspace, ".sonar"));
+		}
+
+		/**
+		 * @return limits the number of concurrent analyses per node.
+		 */
+		AnalysisThrottle getThrottle() {
+			return throttle;
+		}
+
+		/**
+		 * Validate the maximum number of concurrent analyses per node.
+		 * 
+		 * @param value
+		 *            the limit entered by the user.
+		 * @return the result of the validation.
+		 */
+		public FormValidation doCheckMaxConcurrentAnalysesPerNode(@QueryParameter final String value) {
+			return FormValidation.validateNonNegativeInteger(value);
+		}
+
+		/**
+		 * Validate the maximum size of the archived sonar user homes.
+		 * 
+		 * @param value
+		 *            the size in MB entered by the user.
+		 * @return the result of the validation.
+		 */
+		public FormValidation doCheckScannerCacheSize(@QueryParameter final String value) {
+			return FormValidation.validateNonNegativeInteger(value);
 		}
 
 		/**
@@ -176,5 +1389,39 @@ public class SonarBuilder extends Builder {
 		public String getDisplayName() {
 			return "NWDI Sonar Builder";
 		}
+
+		/**
+		 * Validate the number of development components to analyse
+		 * concurrently.
+		 * 
+		 * @param value
+		 *            the number of threads entered by the user.
+		 * @return the result of the validation.
+		 */
+		public FormValidation doCheckNumberOfThreads(@QueryParameter final String value) {
+			return FormValidation.validatePositiveInteger(value);
+		}
+
+		/**
+		 * Validate the time budget.
+		 * 
+		 * @param value
+		 *            the time budget in minutes entered by the user.
+		 * @return the result of the validation.
+		 */
+		public FormValidation doCheckTimeBudget(@QueryParameter final String value) {
+			return FormValidation.validateNonNegativeInteger(value);
+		}
+
+		/**
+		 * Validate the number of builds after which all files are analysed.
+		 * 
+		 * @param value
+		 *            the interval entered by the user.
+		 * @return the result of the validation.
+		 */
+		public FormValidation doCheckFullAnalysisInterval(@QueryParameter final String value) {
+			return FormValidation.validateNonNegativeInteger(value);
+		}
 	}
 }
@@ -0,0 +1,126 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.model.Action;
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Build action presenting the time spent analysing each development component with sonar. The data is available as
+ * JSON via the remote API (<code>sonarTimeline/api/json</code>).
+ *
+ * @author Dirk Weigenand
+ */
+@ExportedBean
+public class SonarMetricsAction implements Action {
+    /**
+     * timings of the analysed development components.
+     */
+    private final List<DevelopmentComponentTiming> timings;
+
+    /**
+     * wall clock time of the sonar build step in milliseconds.
+     */
+    private final long duration;
+
+    /**
+     * Create a build action for the given timings.
+     *
+     * @param timings
+     *            timings of the analysed development components.
+     * @param duration
+     *            wall clock time of the sonar build step in milliseconds.
+     */
+    SonarMetricsAction(final List<DevelopmentComponentTiming> timings, final long duration) {
+        this.timings = new ArrayList<DevelopmentComponentTiming>(timings);
+        this.duration = duration;
+    }
+
+    /**
+     * @return the timings of the analysed development components.
+     */
+    @Exported(inline = true)
+    public List<DevelopmentComponentTiming> getTimings() {
+        return Collections.unmodifiableList(timings);
+    }
+
+    /**
+     * @return the wall clock time of the sonar build step in milliseconds.
+     */
+    @Exported
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return the timings sorted by total time spent, slowest first.
+     */
+    public List<DevelopmentComponentTiming> getTimingsBySlowest() {
+        final List<DevelopmentComponentTiming> sorted = new ArrayList<DevelopmentComponentTiming>(timings);
+        Collections.sort(sorted, new Comparator<DevelopmentComponentTiming>() {
+            @Override
+            public int compare(final DevelopmentComponentTiming o1, final DevelopmentComponentTiming o2) {
+                return Long.valueOf(o2.getTotal()).compareTo(o1.getTotal());
+            }
+        });
+
+        return sorted;
+    }
+
+    /**
+     * Returns the timing of the given development component.
+     *
+     * @param qualifiedName
+     *            <code>vendor:name</code> of a development component.
+     * @return the timing of the given development component or <code>null</code> if it was not analysed.
+     */
+    public DevelopmentComponentTiming getTiming(final String qualifiedName) {
+        for (final DevelopmentComponentTiming timing : timings) {
+            if (timing.getQualifiedName().equals(qualifiedName)) {
+                return timing;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return remote API for exporting the timings as JSON or XML.
+     */
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName() {
+        return "Sonar Analysis Timeline";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrlName() {
+        return "sonarTimeline";
+    }
+}
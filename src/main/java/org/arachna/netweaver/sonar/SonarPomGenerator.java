@@ -5,18 +5,18 @@ package org.arachna.netweaver.sonar;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.velocity.VelocityContext;
-import org.apache.velocity.app.VelocityEngine;
 import org.apache.velocity.context.Context;
 import org.arachna.ant.AntHelper;
 import org.arachna.ant.ExcludesFactory;
@@ -24,8 +24,7 @@ import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
 import org.arachna.netweaver.dc.types.DevelopmentComponentType;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
-import org.arachna.netweaver.dc.types.PublicPartReference;
-import org.arachna.util.io.FileFinder;
+import org.arachna.netweaver.sonar.PublicPartClosure.UsedPublicPart;
 
 /**
  * Generator for pom.xml files with dependencies for sonar configured.
@@ -34,112 +33,487 @@ import org.arachna.util.io.FileFinder;
  */
 public class SonarPomGenerator {
     /**
-     * template engine for generating pom files.
+     * name of the template used for generating pom files.
      */
-    private final VelocityEngine engine;
+    static final String TEMPLATE = "/org/arachna/netweaver/sonar/pom.vm";
+
+    /**
+     * escapes values rendered into the template (<code>$esc.xml(...)</code>).
+     */
+    private static final XmlEscaper XML_ESCAPER = new XmlEscaper();
+
+    /**
+     * cache holding the parsed template for generating pom files.
+     */
+    private final TemplateCache templates;
     private final AntHelper antHelper;
     private final DevelopmentComponentFactory dcFactory;
-    private final long buildNumber;
+
+    /**
+     * build scoped snapshot of the development component folders.
+     */
+    private final WorkspaceSnapshot snapshot;
+
+    /**
+     * build scoped index of the jars contained in public parts.
+     */
+    private final ClassPathIndex classPathIndex;
+
+    /**
+     * build scoped transitive closure of the public parts used by development components.
+     */
+    private final PublicPartClosure publicPartClosure;
+
+    /**
+     * indicate whether sonar should analyse the class files and test results produced by the NWDI build instead of
+     * compiling and testing the development component again.
+     */
+    private boolean reuseBuildOutput;
+
+    /**
+     * indicate whether the class path should only be passed to sonar as <code>sonar.java.libraries</code> instead of
+     * as one <code>system</code> scoped dependency per jar.
+     */
+    private boolean compactClassPath;
+
+    /**
+     * files changed by the activities of the current build (<code>null</code> for analysing all files).
+     */
+    private ChangedFiles changedFiles;
+
+    /**
+     * JVM and surefire options per development component type.
+     */
+    private List<AnalysisOptions> analysisOptions = Collections.emptyList();
+
+    /**
+     * indicate whether poms are written using {@link StreamingPomWriter} instead of the velocity template.
+     */
+    private boolean streamingPomWriter;
+
+    /**
+     * sonar user home persisted between builds (<code>null</code> for sonar's default).
+     */
+    private String scannerUserHome;
 
     private final ExcludesFactory excludesFactory = new ExcludesFactory();
 
-    SonarPomGenerator(final AntHelper antHelper, final DevelopmentComponentFactory dcFactory, final VelocityEngine engine,
-        final long buildNumber) {
+    /**
+     * compiled exclusion patterns mapped by their comma separated patterns.
+     */
+    private final ConcurrentMap<String, ExclusionMatcher> exclusionMatchers =
+        new ConcurrentHashMap<String, ExclusionMatcher>();
+
+    SonarPomGenerator(final AntHelper antHelper, final DevelopmentComponentFactory dcFactory,
+        final TemplateCache templates) {
+        this(antHelper, dcFactory, templates, new WorkspaceSnapshot(antHelper));
+    }
+
+    SonarPomGenerator(final AntHelper antHelper, final DevelopmentComponentFactory dcFactory,
+        final TemplateCache templates, final WorkspaceSnapshot snapshot) {
         this.antHelper = antHelper;
         this.dcFactory = dcFactory;
-        this.engine = engine;
-        this.buildNumber = buildNumber;
+        this.templates = templates;
+        this.snapshot = snapshot;
+        classPathIndex = new ClassPathIndex(snapshot);
+        publicPartClosure = new PublicPartClosure(dcFactory);
     }
 
     void execute(final DevelopmentComponent component, final Writer writer) throws IOException {
-        engine.evaluate(createContext(component), writer, "", getTemplate());
-        writer.close();
+        execute(component, writer, new DevelopmentComponentTiming(component));
+    }
+
+    /**
+     * Generate the pom for the given development component and record the time spent resolving its class path and
+     * rendering the template.
+     *
+     * @param component
+     *            development component to generate the pom for.
+     * @param writer
+     *            writer to write the pom to.
+     * @param timing
+     *            timing to record the time spent into.
+     * @throws IOException
+     *             when writing the pom failed.
+     */
+    void execute(final DevelopmentComponent component, final Writer writer, final DevelopmentComponentTiming timing)
+        throws IOException {
+        final long classPathResolution = timing.getClassPathResolution();
+        final long start = System.currentTimeMillis();
+
+        try {
+            final Context context = createContext(component, timing);
+
+            if (streamingPomWriter) {
+                new StreamingPomWriter(writer).write(context);
+            }
+            else {
+                // escape file names and user supplied settings like StreamingPomWriter does.
+                context.put("esc", XML_ESCAPER);
+                templates.get(TEMPLATE).merge(context, writer);
+            }
+        }
+        finally {
+            writer.close();
+            timing.addTemplateRendering(System.currentTimeMillis() - start
+                - (timing.getClassPathResolution() - classPathResolution));
+        }
+    }
+
+    /**
+     * @return the build scoped snapshot of the development component folders.
+     */
+    WorkspaceSnapshot getWorkspaceSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return <code>true</code> when sonar should analyse the class files and test results produced by the NWDI build.
+     */
+    boolean isReuseBuildOutput() {
+        return reuseBuildOutput;
+    }
+
+    /**
+     * @param reuseBuildOutput
+     *            <code>true</code> when sonar should analyse the class files and test results produced by the NWDI
+     *            build instead of compiling and testing the development component again.
+     */
+    void setReuseBuildOutput(final boolean reuseBuildOutput) {
+        this.reuseBuildOutput = reuseBuildOutput;
+    }
+
+    /**
+     * Determine whether the output of the NWDI build is reused for the given development component. It is compiled and
+     * tested again when the NWDI build did not produce output for it.
+     *
+     * @param component
+     *            development component to examine.
+     * @return <code>true</code> when sonar should analyse the class files produced by the NWDI build.
+     */
+    boolean isReuseBuildOutput(final DevelopmentComponent component) {
+        return reuseBuildOutput && hasBuildOutput(component);
     }
 
     /**
-     * @return
+     * Determine whether the NWDI build produced output for the given development component, i.e. its output folder
+     * exists and is not empty.
+     *
+     * @param component
+     *            development component to examine.
+     * @return <code>true</code> when the output folder of the development component contains files.
      */
-    private Reader getTemplate() {
-        return new InputStreamReader(getClass().getResourceAsStream("/org/arachna/netweaver/sonar/pom.vm"));
+    boolean hasBuildOutput(final DevelopmentComponent component) {
+        final String outputFolder = component.getOutputFolder();
+
+        if (StringUtils.isBlank(outputFolder)) {
+            return false;
+        }
+
+        final String[] children = new File(outputFolder).list();
+
+        return children != null && children.length > 0;
     }
 
-    private Context createContext(final DevelopmentComponent component) {
+    /**
+     * Returns the existing test source folders of the given development component.
+     *
+     * @param component
+     *            development component to get the test source folders for.
+     * @return the test source folders relative to the development component's base location (or absolute when they
+     *         are located outside of it).
+     */
+    List<String> getTestSourceFolders(final DevelopmentComponent component) {
+        final List<String> folders = new ArrayList<String>();
+
+        for (final String folder : component.getTestSourceFolders()) {
+            if (new File(folder).isAbsolute() ? new File(folder).isDirectory() : snapshot.isDirectory(component, folder)) {
+                folders.add(folder);
+            }
+        }
+
+        return folders;
+    }
+
+    /**
+     * @return <code>true</code> when the class path is only passed to sonar as <code>sonar.java.libraries</code>.
+     */
+    boolean isCompactClassPath() {
+        return compactClassPath;
+    }
+
+    /**
+     * Pass the class path only as <code>sonar.java.libraries</code> instead of as one <code>system</code> scoped
+     * dependency per jar. This keeps maven from parsing, validating and sorting thousands of dependencies per
+     * development component. Since the class path is then unknown to the maven compiler this only takes effect when
+     * the build output of the NWDI build is reused.
+     *
+     * @param compactClassPath
+     *            <code>true</code> to omit the <code>system</code> scoped dependencies from the pom.
+     */
+    void setCompactClassPath(final boolean compactClassPath) {
+        this.compactClassPath = compactClassPath;
+    }
+
+    /**
+     * Restrict the analysis of development components to the files changed by the activities of the current build.
+     * Development components without changed files are analysed completely.
+     *
+     * @param changedFiles
+     *            files changed by the activities of the current build, <code>null</code> for analysing all files.
+     */
+    void setChangedFiles(final ChangedFiles changedFiles) {
+        this.changedFiles = changedFiles;
+    }
+
+    /**
+     * Write poms using an {@link javax.xml.stream.XMLStreamWriter} instead of rendering the velocity template. This
+     * avoids velocity's reflective method lookups for every jar on the class path of development components with
+     * large class paths.
+     *
+     * @param streamingPomWriter
+     *            <code>true</code> to write poms using {@link StreamingPomWriter}.
+     */
+    void setStreamingPomWriter(final boolean streamingPomWriter) {
+        this.streamingPomWriter = streamingPomWriter;
+    }
+
+    /**
+     * @param scannerUserHome
+     *            sonar user home persisted between builds (<code>null</code> for sonar's default).
+     */
+    void setScannerUserHome(final String scannerUserHome) {
+        this.scannerUserHome = scannerUserHome;
+    }
+
+    /**
+     * @return sonar user home persisted between builds (<code>null</code> for sonar's default).
+     */
+    String getScannerUserHome() {
+        return scannerUserHome;
+    }
+
+    /**
+     * @param analysisOptions
+     *            JVM and surefire options per development component type.
+     */
+    void setAnalysisOptions(final List<AnalysisOptions> analysisOptions) {
+        this.analysisOptions = analysisOptions == null ? Collections.<AnalysisOptions> emptyList() : analysisOptions;
+    }
+
+    /**
+     * Returns the JVM and surefire options to use for the given development component.
+     *
+     * @param component
+     *            development component to look up options for (<code>null</code> for the options for all types).
+     * @return the options configured for the type of the given development component or for all types.
+     */
+    AnalysisOptions getAnalysisOptions(final DevelopmentComponent component) {
+        return AnalysisOptions.select(analysisOptions, component);
+    }
+
+    /**
+     * Describe the settings of this generator affecting the analysis of the given development component. Changing
+     * any of them invalidates the fingerprint of the development component.
+     *
+     * @param component
+     *            development component to describe the settings for.
+     * @return the settings affecting the analysis of the given development component.
+     */
+    String describeSettings(final DevelopmentComponent component) {
+        final AnalysisOptions options = getAnalysisOptions(component);
+
+        return StringUtils.join(new Object[] { reuseBuildOutput, compactClassPath, createExclusions(component),
+            component.getCompartment().getDevelopmentConfiguration().getSourceVersion(), options.getJvmOptions(),
+            options.getSurefireForkCount(), options.getSurefireParallel(), options.getSurefireThreadCount(),
+            options.getSurefireArgLine() }, '|');
+    }
+
+    /**
+     * Create the velocity context for generating the pom of the given development component.
+     *
+     * @param component
+     *            development component to generate the pom for.
+     * @param timing
+     *            timing to record the time spent resolving the class path into.
+     * @return the velocity context for the given development component.
+     */
+    Context createContext(final DevelopmentComponent component, final DevelopmentComponentTiming timing) {
         final Context context = new VelocityContext();
         context.put("component", component);
         context.put("groupId", getGroupId(component)); 
         context.put("artifactId", getArtifactId(component));
         context.put("targetFolder", component.getOutputFolder());
-        context.put("sonarExclusions", createExclusions(component));
-        context.put("sonarSources", createSonarSources(component));
-        context.put("sources", antHelper.createSourceFileSets(component));
+        final String exclusions = createExclusions(component);
+        context.put("sonarExclusions", exclusions);
+        context.put("sonarInclusions", createInclusions(component));
+        context.put("sonarSources", createSonarSources(component, getExclusionMatcher(exclusions), timing));
+        context.put("sources", snapshot.getSourceFileSets(component));
         context.put("testSources", component.getTestSourceFolders());
-        context.put("resources", antHelper.createResourceFileSets(component));
-        context.put("buildNumber", buildNumber);
+        context.put("resources", snapshot.getResourceFileSets(component));
         context.put("dcName", component.getCompartment().getDevelopmentConfiguration().getName());
 
         final DevelopmentConfiguration config = component.getCompartment().getDevelopmentConfiguration();
         context.put("targetVersion", config.getSourceVersion());
-        context.put("dependencies", createClassPath(component));
+
+        final long start = System.currentTimeMillis();
+        final Collection<DependencyDto> classPath = createClassPath(component);
+        timing.addClassPathResolution(System.currentTimeMillis() - start);
+        context.put("dependencies", classPath);
+        final boolean reuse = isReuseBuildOutput(component);
+        context.put("reuseBuildOutput", reuse);
+        context.put("compactClassPath", compactClassPath && reuse);
+        context.put("libraries", createLibraries(classPath));
+        context.put("testReports", getTestReports(component));
+        context.put("baseDir", antHelper.getBaseLocation(component));
+        context.put("scannerUserHome", scannerUserHome);
+
+        final AnalysisOptions options = getAnalysisOptions(component);
+        context.put("surefireForkCount", options.getSurefireForkCount());
+        context.put("surefireParallel", options.getSurefireParallel());
+        context.put("surefireThreadCount", options.getSurefireThreadCount());
+        context.put("surefireArgLine", options.getSurefireArgLine());
 
         return context;
     }
 
-    private String createSonarSources(DevelopmentComponent component) {
-    	
- 
-    	
-    	String baseLocation = antHelper.getBaseLocation(component);
-
-    	
-    	DevelopmentComponentType componentType = component.getType();
-    	if (DevelopmentComponentType.J2EEEjbModule.equals(componentType)) {
-    		
-    		if (new File(baseLocation+File.separator+"ejbModule").exists()) {
-    			return "ejbModule";
-    		}
-    	}
-    	
-    	if (DevelopmentComponentType.J2EEWebModule.equals(componentType)) {
-    		String sources="";
-    		if (new File(baseLocation+File.separator+"WebContent").exists()) {
-    			sources+="WebContent";
-    		}
-    		
-    		if (new File(baseLocation+File.separator+"source").exists()) {
-    			if (!sources.isEmpty()) {
-    				sources+=",";
-    			}
-    			
-    			sources+="source";
-    		}
-
-    		if (new File(baseLocation+File.separator+"test").exists()) {
-    			if (!sources.isEmpty()) {
-    				sources+=",";
-    			}
-    			
-    			sources+="test";
-    		}
-    		
-    		return sources;
-    	}
-
-    	if (DevelopmentComponentType.J2EE.equals(componentType)) {
-    		if (new File(baseLocation+File.separator+"source").exists()) {
-    			return "source";
-    		}
-
-    	}
-    	
-    	if (DevelopmentComponentType.Java.equals(componentType)) {
-    		if (new File(baseLocation+File.separator+"src").exists()) {
-    			return "src";
-    		}
-
-    	}
-    	
-		return "";
-	}
+    /**
+     * Create the 'sonar.sources' property from the source folders of the given development component. Folders
+     * containing excluded files are pruned to their surviving files and sub folders, so the scanner does not index
+     * excluded files. The number of excluded files is recorded into the given timing.
+     *
+     * @param component
+     *            development component to create the sonar sources for.
+     * @param matcher
+     *            compiled exclusion patterns of the development component.
+     * @param timing
+     *            timing to record the number of excluded files into.
+     * @return comma separated list of folders and files relative to the development component's base location.
+     */
+    private String createSonarSources(final DevelopmentComponent component, final ExclusionMatcher matcher,
+        final DevelopmentComponentTiming timing) {
+        final List<String> folders = getSourceFolders(component);
+
+        if (matcher.isEmpty()) {
+            return StringUtils.join(folders, ',');
+        }
+
+        final List<String> paths = new ArrayList<String>();
+        int excluded = 0;
+
+        for (final String folder : folders) {
+            final ExclusionMatcher.Pruned pruned = matcher.prune(folder, snapshot.getRelativeFiles(component, folder));
+            paths.addAll(pruned.getPaths());
+            excluded += pruned.getExcluded();
+        }
+
+        timing.setExcludedFiles(excluded);
+
+        // keep the folders when everything is excluded, an empty 'sonar.sources' would make sonar fall back to
+        // maven's default source folders.
+        return StringUtils.join(paths.isEmpty() ? folders : paths, ',');
+    }
+
+    private List<String> getSourceFolders(final DevelopmentComponent component) {
+        final DevelopmentComponentType componentType = component.getType();
+
+        if (DevelopmentComponentType.J2EEEjbModule.equals(componentType)) {
+            return getExistingFolders(component, "ejbModule");
+        }
+
+        if (DevelopmentComponentType.J2EEWebModule.equals(componentType)) {
+            return getExistingFolders(component, "WebContent", "source", "test");
+        }
+
+        if (DevelopmentComponentType.J2EE.equals(componentType)) {
+            return getExistingFolders(component, "source");
+        }
+
+        if (DevelopmentComponentType.Java.equals(componentType)) {
+            return getExistingFolders(component, "src");
+        }
+
+        return Collections.emptyList();
+    }
+
+    /**
+     * Returns the given folders that exist in the given development component.
+     *
+     * @param component
+     *            development component to look for folders in.
+     * @param folders
+     *            names of folders relative to the development component's base location.
+     * @return the existing folders.
+     */
+    private List<String> getExistingFolders(final DevelopmentComponent component, final String... folders) {
+        final List<String> existing = new ArrayList<String>();
+
+        for (final String folder : folders) {
+            if (snapshot.isDirectory(component, folder)) {
+                existing.add(folder);
+            }
+        }
+
+        return existing;
+    }
+
+    /**
+     * Returns the compiled matcher for the given exclusions. Matchers are compiled once per distinct set of exclusions
+     * and build.
+     *
+     * @param exclusions
+     *            comma separated list of exclusion patterns.
+     * @return the compiled matcher.
+     */
+    private ExclusionMatcher getExclusionMatcher(final String exclusions) {
+        final String key = StringUtils.defaultString(exclusions);
+        ExclusionMatcher matcher = exclusionMatchers.get(key);
+
+        if (matcher == null) {
+            matcher = new ExclusionMatcher(Arrays.asList(StringUtils.split(key, ',')));
+            exclusionMatchers.putIfAbsent(key, matcher);
+        }
+
+        return matcher;
+    }
+
+    /**
+     * Create the 'sonar.java.libraries' property from the given class path.
+     *
+     * @param classPath
+     *            class path of a development component.
+     * @return comma separated list of the jars on the given class path.
+     */
+    private String createLibraries(final Collection<DependencyDto> classPath) {
+        final StringBuilder libraries = new StringBuilder();
+
+        for (final DependencyDto dependency : classPath) {
+            for (final Path path : dependency.getPaths()) {
+                if (libraries.length() > 0) {
+                    libraries.append(',');
+                }
+
+                libraries.append(path.getPath());
+            }
+        }
+
+        return libraries.toString();
+    }
+
+    /**
+     * Returns the location of the test reports of a previous test run of the given development component.
+     *
+     * @param component
+     *            development component to get the test reports for.
+     * @return location of the surefire reports or <code>null</code> when the development component has no test
+     *         reports.
+     */
+    private String getTestReports(final DevelopmentComponent component) {
+        final String reports = "target/surefire-reports";
+
+        return snapshot.isDirectory(component, reports) ? new File(antHelper.getBaseLocation(component), reports)
+            .getAbsolutePath() : null;
+    }
 
 	/**
      * Create the 'sonar.exclusions' property to a comma separated list of files to exclude from analysis.
@@ -152,44 +526,94 @@ public class SonarPomGenerator {
         return StringUtils.join(excludesFactory.create(component, Collections.<String> emptyList()), ',');
     }
 
-    private String getGroupId(final DevelopmentComponent component) {
+    /**
+     * Create the 'sonar.inclusions' property from the files of the given development component changed in the
+     * current build.
+     *
+     * @param component
+     *            development component to generate inclusions for.
+     * @return comma separated list of changed files or <code>null</code> when all files should be analysed.
+     */
+    private String createInclusions(final DevelopmentComponent component) {
+        if (changedFiles == null || changedFiles.get(component).isEmpty()) {
+            return null;
+        }
+
+        return StringUtils.join(changedFiles.get(component), ',');
+    }
+
+    static String getGroupId(final DevelopmentComponent component) {
         return String.format("%s.%s", component.getCompartment().getDevelopmentConfiguration().getName(), component.getCompartment()
             .getName());
     }
 
-    private String getArtifactId(final DevelopmentComponent component) {
+    static String getArtifactId(final DevelopmentComponent component) {
         return component.getNormalizedName(".").replace('~', '.');
     }
 
+    /**
+     * Create the class path of the given development component from the jars of the public parts it uses directly or
+     * transitively.
+     *
+     * @param component
+     *            development component to create the class path for.
+     * @return the jars of the public parts used by the given development component, one entry per public part, direct
+     *         usages first, without duplicates.
+     */
     public Collection<DependencyDto> createClassPath(final DevelopmentComponent component) {
-        final Map<String, DependencyDto> dependencies = new HashMap<String, DependencyDto>();
+        final Collection<DependencyDto> dependencies = new ArrayList<DependencyDto>();
 
-        for (final PublicPartReference ppRef : component.getUsedDevelopmentComponents()) {
-            final DevelopmentComponent referencedDC = dcFactory.get(ppRef);
+        for (final UsedPublicPart publicPart : publicPartClosure.get(component)) {
+            final DependencyDto dependency = classPathIndex.get(publicPart.getComponent(), publicPart.getName());
 
-            if (referencedDC != null) {
-                final File baseDir = new File(antHelper.getBaseLocation(referencedDC, ppRef.getName()));
+            if (!dependency.getPaths().isEmpty()) {
+                dependencies.add(dependency);
+            }
+        }
 
-                if (baseDir.exists()) {
-                    final FileFinder finder = new FileFinder(baseDir, ".*\\.jar");
-                    DependencyDto dependency = dependencies.get(getGroupId(referencedDC));
+        return dependencies;
+    }
 
-                    if (dependency == null) {
-                        dependency = new DependencyDto(getGroupId(referencedDC), getArtifactId(referencedDC));
-                        dependencies.put(dependency.getGroupId(), dependency);
-                    }
+    /**
+     * Escapes values rendered into the pom template the way {@link StreamingPomWriter} escapes character data.
+     */
+    public static final class XmlEscaper {
+        /**
+         * @param value
+         *            value to render into the template.
+         * @return the value with XML markup characters replaced by entities (an empty string for <code>null</code>).
+         */
+        public String xml(final Object value) {
+            if (value == null) {
+                return "";
+            }
 
-                    for (final File path : finder.find()) {
-                        dependency.addPath(path);
-                    }
+            final String text = value.toString();
+            final StringBuilder escaped = new StringBuilder(text.length());
+
+            for (int i = 0; i < text.length(); i++) {
+                final char c = text.charAt(i);
+
+                switch (c) {
+                    case '&':
+                        escaped.append("&amp;");
+                        break;
+                    case '<':
+                        escaped.append("&lt;");
+                        break;
+                    case '>':
+                        escaped.append("&gt;");
+                        break;
+                    default:
+                        escaped.append(c);
                 }
             }
-        }
 
-        return dependencies.values();
+            return escaped.toString();
+        }
     }
 
-    public class Path {
+    public static final class Path {
         private final String path;
         private final String name;
 
@@ -246,14 +670,10 @@ public class SonarPomGenerator {
             }
             return true;
         }
-
-        private SonarPomGenerator getOuterType() {
-            return SonarPomGenerator.this;
-        }
     }
 
-    public class DependencyDto {
-        private final Collection<Path> paths = new HashSet<Path>();
+    public static final class DependencyDto {
+        private final Collection<Path> paths;
         private final String groupId;
         private final String artifactId;
 
@@ -304,13 +724,17 @@ public class SonarPomGenerator {
             return true;
         }
 
-        DependencyDto(final String groupId, final String artifactId) {
+        DependencyDto(final String groupId, final String artifactId, final Collection<File> jars) {
             this.groupId = groupId;
             this.artifactId = artifactId;
-        }
 
-        void addPath(final File path) {
-            paths.add(new Path(path));
+            final Collection<Path> paths = new LinkedHashSet<Path>();
+
+            for (final File jar : jars) {
+                paths.add(new Path(jar));
+            }
+
+            this.paths = Collections.unmodifiableCollection(paths);
         }
 
         /**
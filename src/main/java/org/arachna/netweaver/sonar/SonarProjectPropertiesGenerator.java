@@ -0,0 +1,209 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.velocity.context.Context;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Generator for <code>sonar-project.properties</code> files to be used by the sonar scanner CLI directly, i.e.
+ * without building a maven model for each development component.
+ *
+ * The properties are derived from the same data as the <code>sonar-pom.xml</code> generated by
+ * {@link SonarPomGenerator}. Test source folders are passed as <code>sonar.tests</code> and removed from (or excluded
+ * below) the <code>sonar.sources</code> so they are not indexed as main code.
+ *
+ * @author Dirk Weigenand
+ */
+final class SonarProjectPropertiesGenerator {
+    /**
+     * generator providing the data for the analysis of a development component.
+     */
+    private final SonarPomGenerator pomGenerator;
+
+    /**
+     * Create a generator for <code>sonar-project.properties</code> files.
+     *
+     * @param pomGenerator
+     *            generator providing the data for the analysis of a development component.
+     */
+    SonarProjectPropertiesGenerator(final SonarPomGenerator pomGenerator) {
+        this.pomGenerator = pomGenerator;
+    }
+
+    /**
+     * Generate the <code>sonar-project.properties</code> for the given development component.
+     *
+     * @param component
+     *            development component to generate the properties for.
+     * @param writer
+     *            writer to write the properties to.
+     * @param timing
+     *            timing to record the time spent resolving the class path and rendering into.
+     * @throws IOException
+     *             when writing the properties failed.
+     */
+    void execute(final DevelopmentComponent component, final Writer writer, final DevelopmentComponentTiming timing)
+        throws IOException {
+        final long classPathResolution = timing.getClassPathResolution();
+        final long start = System.currentTimeMillis();
+
+        try {
+            for (final Map.Entry<String, String> property : createProperties(component, timing).entrySet()) {
+                writer.write(escape(property.getKey(), true));
+                writer.write('=');
+                writer.write(escape(property.getValue(), false));
+                writer.write('\n');
+            }
+        }
+        finally {
+            writer.close();
+            timing.addTemplateRendering(System.currentTimeMillis() - start
+                - (timing.getClassPathResolution() - classPathResolution));
+        }
+    }
+
+    /**
+     * Create the sonar analysis properties for the given development component.
+     *
+     * @param component
+     *            development component to create the properties for.
+     * @param timing
+     *            timing to record the time spent resolving the class path into.
+     * @return analysis properties sorted by name. Properties without value are omitted except for
+     *         <code>sonar.sources</code>.
+     */
+    Map<String, String> createProperties(final DevelopmentComponent component,
+        final DevelopmentComponentTiming timing) {
+        final Context context = pomGenerator.createContext(component, timing);
+        final Map<String, String> properties = new TreeMap<String, String>();
+        final List<String> tests = pomGenerator.getTestSourceFolders(component);
+        final List<String> sources = new ArrayList<String>();
+        final List<String> exclusions = new ArrayList<String>();
+
+        if (!StringUtils.isBlank((String)context.get("sonarExclusions"))) {
+            exclusions.add((String)context.get("sonarExclusions"));
+        }
+
+        for (final String source : StringUtils.split(StringUtils.defaultString((String)context.get("sonarSources")),
+            ',')) {
+            if (!isBelow(source, tests)) {
+                sources.add(source);
+            }
+        }
+
+        for (final String test : tests) {
+            if (isBelow(test, sources)) {
+                exclusions.add(test + "/**");
+            }
+        }
+
+        put(properties, "sonar.projectKey", String.format("%s:%s", context.get("groupId"), context.get("artifactId")));
+        put(properties, "sonar.projectName", String.format("%s-%s", context.get("dcName"), component.getName()));
+        put(properties, "sonar.projectDescription", component.getDescription());
+        put(properties, "sonar.projectBaseDir", context.get("baseDir"));
+        put(properties, "sonar.sourceEncoding", "UTF-8");
+        // the scanner refuses to analyse projects without sonar.sources, e.g. development components containing tests
+        // only.
+        properties.put("sonar.sources", StringUtils.join(sources, ','));
+        put(properties, "sonar.tests", StringUtils.join(tests, ','));
+        put(properties, "sonar.exclusions", StringUtils.join(exclusions, ','));
+        put(properties, "sonar.inclusions", context.get("sonarInclusions"));
+        put(properties, "sonar.userHome", context.get("scannerUserHome"));
+        put(properties, "sonar.java.source", context.get("targetVersion"));
+        if (pomGenerator.hasBuildOutput(component)) {
+            put(properties, "sonar.java.binaries", context.get("targetFolder"));
+        }
+        put(properties, "sonar.java.libraries", context.get("libraries"));
+        put(properties, "sonar.junit.reportPaths", context.get("testReports"));
+
+        return properties;
+    }
+
+    /**
+     * Determine whether the given path equals or is located below one of the given folders.
+     */
+    private boolean isBelow(final String path, final Collection<String> folders) {
+        final String normalized = StringUtils.removeEnd(path.replace('\\', '/'), "/");
+
+        for (final String folder : folders) {
+            final String parent = StringUtils.removeEnd(folder.replace('\\', '/'), "/");
+
+            if (normalized.equals(parent) || normalized.startsWith(parent + '/')) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void put(final Map<String, String> properties, final String name, final Object value) {
+        if (value != null && !StringUtils.isBlank(value.toString())) {
+            properties.put(name, value.toString());
+        }
+    }
+
+    /**
+     * Escape the given string for use in a properties file.
+     *
+     * @param value
+     *            string to escape.
+     * @param key
+     *            <code>true</code> when the string is used as key.
+     * @return the escaped string.
+     */
+    private String escape(final String value, final boolean key) {
+        final StringBuilder escaped = new StringBuilder(value.length());
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            switch (c) {
+                case '\\':
+                    escaped.append("\\\\");
+                    break;
+                case '\n':
+                    escaped.append("\\n");
+                    break;
+                case '\r':
+                    escaped.append("\\r");
+                    break;
+                case '\t':
+                    escaped.append("\\t");
+                    break;
+                case ' ':
+                    escaped.append(key || i == 0 ? "\\ " : " ");
+                    break;
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    if (key) {
+                        escaped.append('\\');
+                    }
+
+                    escaped.append(c);
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        escaped.append(String.format("\\u%04x", (int)c));
+                    }
+                    else {
+                        escaped.append(c);
+                    }
+            }
+        }
+
+        return escaped.toString();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.EnvVars;
+import hudson.Launcher;
+import hudson.model.TaskListener;
+import hudson.util.ArgumentListBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Runs the sonar scanner CLI on a <code>sonar-project.properties</code> file.
+ *
+ * @author Dirk Weigenand
+ */
+final class SonarScanner {
+    /**
+     * path to the sonar scanner executable.
+     */
+    private final String executable;
+
+    /**
+     * Create a runner for the given sonar scanner executable.
+     *
+     * @param executable
+     *            path to the sonar scanner executable.
+     */
+    SonarScanner(final String executable) {
+        this.executable = executable;
+    }
+
+    /**
+     * Run the sonar scanner.
+     *
+     * @param launcher
+     *            launcher for starting the scanner.
+     * @param listener
+     *            listener receiving the scanner output.
+     * @param env
+     *            environment for the scanner process.
+     * @param settings
+     *            the <code>sonar-project.properties</code> file to analyse.
+     * @param properties
+     *            additional analysis properties (e.g. the project version).
+     * @param jvmOptions
+     *            options for the scanner JVM.
+     * @return <code>true</code> when the analysis succeeded, <code>false</code> otherwise.
+     * @throws IOException
+     *             when the scanner could not be started.
+     * @throws InterruptedException
+     *             when the build was aborted.
+     */
+    boolean run(final Launcher launcher, final TaskListener listener, final EnvVars env, final File settings,
+        final Map<String, String> properties, final String jvmOptions) throws IOException, InterruptedException {
+        final ArgumentListBuilder args = new ArgumentListBuilder(executable);
+        args.addKeyValuePair("-D", "project.settings", settings.getAbsolutePath(), false);
+        args.addKeyValuePairs("-D", properties);
+
+        final EnvVars scannerEnv = new EnvVars(env);
+
+        if (!StringUtils.isBlank(jvmOptions)) {
+            scannerEnv.put("SONAR_SCANNER_OPTS", jvmOptions);
+        }
+
+        return launcher.launch().cmds(args).envs(scannerEnv).pwd(settings.getAbsoluteFile().getParentFile())
+            .stdout(listener).join() == 0;
+    }
+
+    /**
+     * @return path to the sonar scanner executable.
+     */
+    String getExecutable() {
+        return executable;
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Action;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Project action presenting the development components that took longest to analyse over the last builds.
+ *
+ * @author Dirk Weigenand
+ */
+public class SonarTrendAction implements Action {
+    /**
+     * number of builds to consider.
+     */
+    static final int NUMBER_OF_BUILDS = 10;
+
+    /**
+     * maximum number of builds examined for a {@link SonarMetricsAction}. Bounds the number of builds loaded from
+     * disk on jobs where the action is rare or missing.
+     */
+    static final int MAX_EXAMINED_BUILDS = 50;
+
+    /**
+     * number of development components to show.
+     */
+    static final int NUMBER_OF_COMPONENTS = 20;
+
+    /**
+     * the project this action belongs to.
+     */
+    private final AbstractProject<?, ?> project;
+
+    /**
+     * the last builds having a {@link SonarMetricsAction} (<code>null</code> until determined).
+     */
+    private List<AbstractBuild<?, ?>> builds;
+
+    /**
+     * Create the trend action for the given project.
+     *
+     * @param project
+     *            the project this action belongs to.
+     */
+    SonarTrendAction(final AbstractProject<?, ?> project) {
+        this.project = project;
+    }
+
+    /**
+     * @return the project this action belongs to.
+     */
+    public AbstractProject<?, ?> getProject() {
+        return project;
+    }
+
+    /**
+     * @return the last builds having a {@link SonarMetricsAction} among the last {@link #MAX_EXAMINED_BUILDS} builds,
+     *         latest build first.
+     */
+    public List<AbstractBuild<?, ?>> getBuilds() {
+        if (builds == null) {
+            final List<AbstractBuild<?, ?>> found = new ArrayList<AbstractBuild<?, ?>>();
+            AbstractBuild<?, ?> build = project.getLastBuild();
+
+            for (int i = 0; i < MAX_EXAMINED_BUILDS && build != null && found.size() < NUMBER_OF_BUILDS; i++) {
+                if (build.getAction(SonarMetricsAction.class) != null) {
+                    found.add(build);
+                }
+
+                build = build.getPreviousBuild();
+            }
+
+            builds = found;
+        }
+
+        return builds;
+    }
+
+    /**
+     * Returns the development components that took longest to analyse in any of the last builds.
+     *
+     * @return <code>vendor:name</code> of the slowest development components, slowest first.
+     */
+    public List<String> getSlowestComponents() {
+        final Map<String, Long> maxima = new LinkedHashMap<String, Long>();
+
+        for (final AbstractBuild<?, ?> build : getBuilds()) {
+            for (final DevelopmentComponentTiming timing : build.getAction(SonarMetricsAction.class).getTimings()) {
+                final Long max = maxima.get(timing.getQualifiedName());
+
+                if (max == null || max < timing.getTotal()) {
+                    maxima.put(timing.getQualifiedName(), timing.getTotal());
+                }
+            }
+        }
+
+        final List<String> components = new ArrayList<String>(maxima.keySet());
+        Collections.sort(components, new Comparator<String>() {
+            @Override
+            public int compare(final String o1, final String o2) {
+                return maxima.get(o2).compareTo(maxima.get(o1));
+            }
+        });
+
+        return components.size() > NUMBER_OF_COMPONENTS ? components.subList(0, NUMBER_OF_COMPONENTS) : components;
+    }
+
+    /**
+     * Returns the timing of the given development component in the given build.
+     *
+     * @param build
+     *            build to get the timing from.
+     * @param qualifiedName
+     *            <code>vendor:name</code> of a development component.
+     * @return the timing of the development component or <code>null</code> if it was not analysed in the given build.
+     */
+    public DevelopmentComponentTiming getTiming(final AbstractBuild<?, ?> build, final String qualifiedName) {
+        final SonarMetricsAction action = build.getAction(SonarMetricsAction.class);
+
+        return action == null ? null : action.getTiming(qualifiedName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getIconFileName() {
+        return "clock.png";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getDisplayName() {
+        return "Sonar Analysis Trend";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getUrlName() {
+        return "sonarTrend";
+    }
+}
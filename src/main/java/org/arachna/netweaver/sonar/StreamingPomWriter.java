@@ -0,0 +1,335 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collection;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.velocity.context.Context;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.sonar.SonarPomGenerator.DependencyDto;
+import org.arachna.netweaver.sonar.SonarPomGenerator.Path;
+
+/**
+ * Writes the same pom as the velocity template <code>pom.vm</code> using an {@link XMLStreamWriter}. The values are
+ * taken from the context created by {@link SonarPomGenerator}, the class path is streamed to the writer while iterating
+ * the dependencies instead of being rendered through velocity's reflective method lookups for every jar.
+ *
+ * @author Dirk Weigenand
+ */
+final class StreamingPomWriter {
+    /**
+     * name space of maven poms.
+     */
+    private static final String POM_NS = "http://maven.apache.org/POM/4.0.0";
+
+    /**
+     * name space of XML schema instances.
+     */
+    private static final String XSI_NS = "http://www.w3.org/2001/XMLSchema-instance";
+
+    /**
+     * factory for stream writers (thread safe once configured).
+     */
+    private static final XMLOutputFactory FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * the stream writer to write the pom to.
+     */
+    private final XMLStreamWriter xml;
+
+    /**
+     * current nesting depth used for indentation.
+     */
+    private int depth;
+
+    /**
+     * Create a pom writer writing to the given writer.
+     *
+     * @param writer
+     *            writer to write the pom to.
+     * @throws IOException
+     *             when no stream writer could be created.
+     */
+    StreamingPomWriter(final Writer writer) throws IOException {
+        try {
+            xml = FACTORY.createXMLStreamWriter(writer);
+        }
+        catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Write the pom described by the given context.
+     *
+     * @param context
+     *            context created by {@link SonarPomGenerator#createContext}.
+     * @throws IOException
+     *             when writing the pom failed.
+     */
+    void write(final Context context) throws IOException {
+        try {
+            writeProject(context);
+            xml.writeCharacters("\n");
+            xml.flush();
+        }
+        catch (final XMLStreamException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private void writeProject(final Context context) throws XMLStreamException {
+        final DevelopmentComponent component = (DevelopmentComponent)context.get("component");
+
+        xml.writeStartElement("project");
+        xml.writeNamespace("pom", POM_NS);
+        xml.writeNamespace("xsi", XSI_NS);
+        xml.writeAttribute("xsi", XSI_NS, "schemaLocation", POM_NS + " http://maven.apache.org/xsd/maven-4.0.0.xsd");
+        depth++;
+        element("modelVersion", "4.0.0");
+        element("groupId", context.get("groupId"));
+        element("artifactId", context.get("artifactId"));
+        element("version", "1.0-SNAPSHOT");
+        element("name", context.get("dcName") + "-" + component.getName());
+        element("description", component.getDescription());
+
+        writeProperties(context);
+
+        start("scm");
+        element("connection", "");
+        element("developerConnection", "");
+        end();
+
+        writeBuild(context);
+        writeDependencies(context);
+        depth--;
+        newLine();
+        xml.writeEndElement();
+    }
+
+    private void writeProperties(final Context context) throws XMLStreamException {
+        start("properties");
+        element("source.encoding", "UTF-8");
+        element("default.version", "1.0-SNAPSHOT");
+        element("sonar.sources", context.get("sonarSources"));
+        nonNullElement("sonar.exclusions", context.get("sonarExclusions"));
+        nonNullElement("sonar.inclusions", context.get("sonarInclusions"));
+        nonNullElement("sonar.userHome", context.get("scannerUserHome"));
+
+        if (Boolean.TRUE.equals(context.get("reuseBuildOutput"))) {
+            element("sonar.java.binaries", context.get("targetFolder"));
+            element("sonar.java.libraries", context.get("libraries"));
+
+            final Object testReports = context.get("testReports");
+
+            nonNullElement("sonar.junit.reportPaths", testReports);
+            nonNullElement("sonar.surefire.reportsPath", testReports);
+        }
+
+        end();
+    }
+
+    private void writeBuild(final Context context) throws XMLStreamException {
+        start("build");
+        element("outputDirectory", context.get("targetFolder"));
+
+        final Collection<?> sources = (Collection<?>)context.get("sources");
+
+        if (sources != null) {
+            final Collection<?> resources = (Collection<?>)context.get("resources");
+
+            start("plugins");
+            writeCompilerPlugin(context);
+            writeSurefirePlugin(context);
+
+            start("plugin");
+            element("groupId", "org.codehaus.mojo");
+            element("artifactId", "build-helper-maven-plugin");
+            element("version", "1.9.1");
+            start("executions");
+            startExecution("add-source", "generate-sources", "add-source");
+            start("sources");
+            elements("source", sources);
+            elements("source", resources);
+            end();
+            endExecution();
+            startExecution("add-test-source", "generate-test-sources", "add-test-source");
+            start("sources");
+            elements("source", (Collection<?>)context.get("testSources"));
+            end();
+            endExecution();
+            startExecution("add-resource", "generate-resources", "add-resource");
+            start("resources");
+
+            for (final Object resource : resources) {
+                start("resource");
+                element("directory", resource);
+                end();
+            }
+
+            end();
+            endExecution();
+            end();
+            end();
+            end();
+        }
+
+        start("pluginManagement");
+        start("plugins");
+        start("plugin");
+        element("groupId", "org.sonarsource.scanner.maven");
+        element("artifactId", "sonar-maven-plugin");
+        element("version", "3.2");
+        end();
+        end();
+        end();
+        end();
+    }
+
+    private void writeCompilerPlugin(final Context context) throws XMLStreamException {
+        final Object targetVersion = context.get("targetVersion");
+
+        start("plugin");
+        element("groupId", "org.apache.maven.plugins");
+        element("artifactId", "maven-compiler-plugin");
+        element("version", "3.1");
+        start("configuration");
+        element("source", targetVersion);
+        element("target", targetVersion);
+        end();
+        end();
+    }
+
+    private void writeSurefirePlugin(final Context context) throws XMLStreamException {
+        start("plugin");
+        element("groupId", "org.apache.maven.plugins");
+        element("artifactId", "maven-surefire-plugin");
+        element("version", "2.17");
+        start("configuration");
+        element("testFailureIgnore", "true");
+        optionalElement("forkCount", context.get("surefireForkCount"));
+
+        final Object parallel = context.get("surefireParallel");
+
+        if (StringUtils.isNotEmpty((String)parallel)) {
+            element("parallel", parallel);
+
+            final Integer threadCount = (Integer)context.get("surefireThreadCount");
+
+            if (threadCount != null && threadCount > 0) {
+                element("threadCount", threadCount);
+            }
+        }
+
+        optionalElement("argLine", context.get("surefireArgLine"));
+        end();
+        start("dependencies");
+        start("dependency");
+        element("groupId", "org.apache.maven.surefire");
+        element("artifactId", "surefire-junit47");
+        element("version", "2.17");
+        end();
+        end();
+        end();
+    }
+
+    private void writeDependencies(final Context context) throws XMLStreamException {
+        start("dependencies");
+
+        if (!Boolean.TRUE.equals(context.get("compactClassPath"))) {
+            @SuppressWarnings("unchecked")
+            final Collection<DependencyDto> dependencies = (Collection<DependencyDto>)context.get("dependencies");
+
+            for (final DependencyDto dependency : dependencies) {
+                for (final Path path : dependency.getPaths()) {
+                    start("dependency");
+                    element("groupId", dependency.getGroupId());
+                    element("artifactId", dependency.getArtifactId(path));
+                    element("version", "${default.version}");
+                    element("type", "jar");
+                    element("scope", "system");
+                    element("systemPath", path.getPath());
+                    end();
+                }
+            }
+        }
+
+        end();
+    }
+
+    private void startExecution(final String id, final String phase, final String goal) throws XMLStreamException {
+        start("execution");
+        element("id", id);
+        element("phase", phase);
+        start("goals");
+        element("goal", goal);
+        end();
+        start("configuration");
+    }
+
+    private void endExecution() throws XMLStreamException {
+        end();
+        end();
+    }
+
+    private void start(final String name) throws XMLStreamException {
+        newLine();
+        xml.writeStartElement(name);
+        depth++;
+    }
+
+    private void end() throws XMLStreamException {
+        depth--;
+        newLine();
+        xml.writeEndElement();
+    }
+
+    private void element(final String name, final Object value) throws XMLStreamException {
+        newLine();
+        xml.writeStartElement(name);
+        xml.writeCharacters(value == null ? "" : value.toString());
+        xml.writeEndElement();
+    }
+
+    /**
+     * Write an element only when the given value is not <code>null</code> (like velocity's <code>#if</code>).
+     */
+    private void nonNullElement(final String name, final Object value) throws XMLStreamException {
+        if (value != null) {
+            element(name, value);
+        }
+    }
+
+    /**
+     * Write an element only when the given value is neither <code>null</code> nor empty.
+     */
+    private void optionalElement(final String name, final Object value) throws XMLStreamException {
+        if (value != null && !value.toString().isEmpty()) {
+            element(name, value);
+        }
+    }
+
+    private void elements(final String name, final Collection<?> values) throws XMLStreamException {
+        if (values != null) {
+            for (final Object value : values) {
+                element(name, value);
+            }
+        }
+    }
+
+    private void newLine() throws XMLStreamException {
+        xml.writeCharacters("\n");
+
+        for (int i = 0; i < depth; i++) {
+            xml.writeCharacters("  ");
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.velocity.Template;
+import org.apache.velocity.runtime.RuntimeConstants;
+import org.apache.velocity.runtime.RuntimeInstance;
+import org.apache.velocity.runtime.log.NullLogChute;
+import org.apache.velocity.runtime.parser.ParseException;
+import org.apache.velocity.runtime.parser.node.SimpleNode;
+
+/**
+ * Cache for velocity templates read from the plugin's class path. Each template is read and parsed once, the parsed
+ * {@link Template} is then shared by all threads merging contexts into it.
+ *
+ * @author Dirk Weigenand
+ */
+class TemplateCache {
+    /**
+     * cache shared by all generators loaded by the plugin's class loader.
+     */
+    private static final TemplateCache INSTANCE = new TemplateCache();
+
+    /**
+     * parsed templates mapped by their resource name.
+     */
+    private final ConcurrentMap<String, Template> templates = new ConcurrentHashMap<String, Template>();
+
+    /**
+     * velocity runtime used for parsing and rendering the cached templates.
+     */
+    private final RuntimeInstance runtime;
+
+    /**
+     * Create an empty template cache.
+     */
+    TemplateCache() {
+        runtime = new RuntimeInstance();
+        runtime.setProperty(RuntimeConstants.RUNTIME_LOG_LOGSYSTEM_CLASS, NullLogChute.class.getName());
+        runtime.init();
+    }
+
+    /**
+     * @return the cache shared by all generators loaded by the plugin's class loader.
+     */
+    static TemplateCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the parsed template for the given class path resource. The template is parsed on first access only.
+     *
+     * @param name
+     *            absolute name of the template resource.
+     * @return the parsed template.
+     * @throws IOException
+     *             when the template could not be read or parsed.
+     */
+    Template get(final String name) throws IOException {
+        Template template = templates.get(name);
+
+        if (template == null) {
+            synchronized (this) {
+                template = templates.get(name);
+
+                if (template == null) {
+                    template = parse(name);
+                    templates.put(name, template);
+                }
+            }
+        }
+
+        return template;
+    }
+
+    /**
+     * Read and parse the given class path resource.
+     *
+     * @param name
+     *            absolute name of the template resource.
+     * @return the parsed template.
+     * @throws IOException
+     *             when the template could not be read or parsed.
+     */
+    Template parse(final String name) throws IOException {
+        final InputStream stream = getClass().getResourceAsStream(name);
+
+        if (stream == null) {
+            throw new IOException(String.format("Template %s not found!", name));
+        }
+
+        final Reader reader = new InputStreamReader(stream, "UTF-8");
+
+        try {
+            final SimpleNode document = runtime.parse(reader, name);
+            final Template template = new Template();
+            template.setName(name);
+            template.setRuntimeServices(runtime);
+            template.setData(document);
+            template.initDocument();
+
+            return template;
+        }
+        catch (final ParseException e) {
+            throw new IOException(String.format("Could not parse template %s: %s", name, e.getMessage()), e);
+        }
+        finally {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+
+/**
+ * Build scoped in memory snapshot of the development component folders in the workspace.
+ *
+ * The folder of each development component is walked once (using {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)})
+ * when it is first queried. Probing for source folders, listing the files of source and resource folders and finding
+ * the jars of public parts is answered from memory afterwards. This avoids repeated <code>stat</code> calls that are
+ * expensive on network file systems. The source and resource file sets determined by {@link AntHelper} are memoized as
+ * well.
+ *
+ * The snapshot does not notice changes made to the workspace after a folder was walked.
+ *
+ * @author Dirk Weigenand
+ */
+final class WorkspaceSnapshot {
+    /**
+     * helper for determining the location of development components.
+     */
+    private final AntHelper antHelper;
+
+    /**
+     * snapshots of walked folders mapped by their absolute path.
+     */
+    private final ConcurrentMap<String, Future<DirectorySnapshot>> snapshots =
+        new ConcurrentHashMap<String, Future<DirectorySnapshot>>();
+
+    /**
+     * source file sets mapped by development component.
+     */
+    private final ConcurrentMap<DevelopmentComponent, List<String>> sourceFileSets =
+        new ConcurrentHashMap<DevelopmentComponent, List<String>>();
+
+    /**
+     * resource file sets mapped by development component.
+     */
+    private final ConcurrentMap<DevelopmentComponent, List<String>> resourceFileSets =
+        new ConcurrentHashMap<DevelopmentComponent, List<String>>();
+
+    /**
+     * Create an empty snapshot.
+     *
+     * @param antHelper
+     *            helper for determining the location of development components.
+     */
+    WorkspaceSnapshot(final AntHelper antHelper) {
+        this.antHelper = antHelper;
+    }
+
+    /**
+     * @return helper for determining the location of development components.
+     */
+    AntHelper getAntHelper() {
+        return antHelper;
+    }
+
+    /**
+     * Returns the source folders of the given development component.
+     *
+     * @param component
+     *            development component to get the source folders for.
+     * @return the source folders as determined by {@link AntHelper#createSourceFileSets(DevelopmentComponent)}.
+     */
+    List<String> getSourceFileSets(final DevelopmentComponent component) {
+        List<String> fileSets = sourceFileSets.get(component);
+
+        if (fileSets == null) {
+            fileSets = Collections.unmodifiableList(new ArrayList<String>(antHelper.createSourceFileSets(component)));
+            sourceFileSets.putIfAbsent(component, fileSets);
+        }
+
+        return fileSets;
+    }
+
+    /**
+     * Returns the resource folders of the given development component.
+     *
+     * @param component
+     *            development component to get the resource folders for.
+     * @return the resource folders as determined by {@link AntHelper#createResourceFileSets(DevelopmentComponent)}.
+     */
+    List<String> getResourceFileSets(final DevelopmentComponent component) {
+        List<String> fileSets = resourceFileSets.get(component);
+
+        if (fileSets == null) {
+            fileSets =
+                Collections.unmodifiableList(new ArrayList<String>(antHelper.createResourceFileSets(component)));
+            resourceFileSets.putIfAbsent(component, fileSets);
+        }
+
+        return fileSets;
+    }
+
+    /**
+     * Determine whether the given folder of a development component exists.
+     *
+     * @param component
+     *            development component to look in.
+     * @param folder
+     *            folder relative to the development component's base location.
+     * @return <code>true</code> when the folder exists, <code>false</code> otherwise.
+     */
+    boolean isDirectory(final DevelopmentComponent component, final String folder) {
+        return get(antHelper.getBaseLocation(component)).isDirectory(folder);
+    }
+
+    /**
+     * Returns the files contained (recursively) in the given folders of the given development component.
+     *
+     * @param component
+     *            development component the folders belong to.
+     * @param folders
+     *            absolute folders or folders relative to the development component's base location.
+     * @return the files contained in the given folders sorted by path.
+     */
+    SortedSet<File> getFiles(final DevelopmentComponent component, final Collection<String> folders) {
+        final String baseLocation = antHelper.getBaseLocation(component);
+        final SortedSet<File> files = new TreeSet<File>();
+
+        for (final String folder : folders) {
+            File directory = new File(folder);
+
+            if (!directory.isAbsolute()) {
+                directory = new File(baseLocation, folder);
+            }
+
+            files.addAll(getFiles(baseLocation, directory, null));
+        }
+
+        return files;
+    }
+
+    /**
+     * Returns the files contained (recursively) in the given folder of the given development component.
+     *
+     * @param component
+     *            development component the folder belongs to.
+     * @param folder
+     *            folder relative to the development component's base location.
+     * @return the files contained in the given folder relative to the development component's base location using '/'
+     *         as separator, sorted.
+     */
+    SortedSet<String> getRelativeFiles(final DevelopmentComponent component, final String folder) {
+        return get(antHelper.getBaseLocation(component)).getRelativeFiles(folder);
+    }
+
+    /**
+     * Returns the jars contained (recursively) in the given public part of the given development component.
+     *
+     * @param component
+     *            development component providing the public part.
+     * @param publicPart
+     *            name of public part.
+     * @return the jars of the given public part sorted by path.
+     */
+    List<File> getJars(final DevelopmentComponent component, final String publicPart) {
+        return getFiles(antHelper.getBaseLocation(component),
+            new File(antHelper.getBaseLocation(component, publicPart)), ".jar");
+    }
+
+    /**
+     * Returns the files below the given directory. The directory is looked up in the snapshot of the given base
+     * location when it is contained in it, otherwise it is walked itself.
+     */
+    private List<File> getFiles(final String baseLocation, final File directory, final String suffix) {
+        DirectorySnapshot snapshot = get(baseLocation);
+
+        if (!snapshot.contains(directory)) {
+            snapshot = get(directory.getAbsolutePath());
+        }
+
+        return snapshot.getFiles(directory, suffix);
+    }
+
+    /**
+     * Returns the snapshot of the given folder walking it when queried for the first time.
+     *
+     * @param location
+     *            absolute path of folder.
+     * @return snapshot of the given folder.
+     */
+    private DirectorySnapshot get(final String location) {
+        final String key = String.valueOf(location);
+        Future<DirectorySnapshot> snapshot = snapshots.get(key);
+
+        if (snapshot == null) {
+            final FutureTask<DirectorySnapshot> task = new FutureTask<DirectorySnapshot>(new Callable<DirectorySnapshot>() {
+                @Override
+                public DirectorySnapshot call() throws IOException {
+                    return new DirectorySnapshot(location == null ? null : new File(location));
+                }
+            });
+
+            snapshot = snapshots.putIfAbsent(key, task);
+
+            if (snapshot == null) {
+                snapshot = task;
+                task.run();
+            }
+        }
+
+        return resolve(snapshot);
+    }
+
+    private DirectorySnapshot resolve(final Future<DirectorySnapshot> snapshot) {
+        try {
+            return snapshot.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        catch (final ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * The folders and files below a root folder. Paths are stored relative to the root using '/' as separator.
+     */
+    private static final class DirectorySnapshot {
+        /**
+         * the walked folder.
+         */
+        private final File root;
+
+        /**
+         * folders below the root (including the root itself as empty string).
+         */
+        private final NavigableSet<String> directories = new TreeSet<String>();
+
+        /**
+         * files below the root.
+         */
+        private final NavigableSet<String> files = new TreeSet<String>();
+
+        DirectorySnapshot(final File root) throws IOException {
+            this.root = root == null ? null : root.getAbsoluteFile().toPath().normalize().toFile();
+
+            if (this.root != null && this.root.isDirectory()) {
+                final Path rootPath = this.root.toPath();
+
+                Files.walkFileTree(rootPath, new SimpleFileVisitor<Path>() {
+                    @Override
+                    public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+                        directories.add(relativize(rootPath, dir));
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                        if (attrs.isRegularFile()) {
+                            files.add(relativize(rootPath, file));
+                        }
+
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(final Path file, final IOException exc) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            }
+        }
+
+        boolean contains(final File file) {
+            return relativize(file) != null;
+        }
+
+        boolean isDirectory(final String folder) {
+            final String relative = relativize(new File(root, folder));
+
+            return relative != null && directories.contains(relative);
+        }
+
+        SortedSet<String> getRelativeFiles(final String folder) {
+            final String relative = relativize(new File(root, folder));
+
+            if (relative == null || !directories.contains(relative)) {
+                return Collections.unmodifiableSortedSet(new TreeSet<String>());
+            }
+
+            return Collections.unmodifiableSortedSet(relative.isEmpty() ? files : files.subSet(relative + '/', true,
+                relative + '0', false));
+        }
+
+        List<File> getFiles(final File directory, final String suffix) {
+            final String relative = relativize(directory);
+            final List<File> result = new ArrayList<File>();
+
+            if (relative == null || !directories.contains(relative)) {
+                return result;
+            }
+
+            final Set<String> below =
+                relative.isEmpty() ? files : files.subSet(relative + '/', true, relative + '0', false);
+
+            for (final String path : below) {
+                if (suffix == null || path.endsWith(suffix)) {
+                    result.add(new File(root, path));
+                }
+            }
+
+            return result;
+        }
+
+        /**
+         * Returns the path of the given file relative to the root or <code>null</code> when it is not below the root.
+         */
+        private String relativize(final File file) {
+            if (root == null) {
+                return null;
+            }
+
+            final String rootPath = root.getPath();
+            final String path = file.getAbsoluteFile().toPath().normalize().toString();
+
+            if (path.equals(rootPath)) {
+                return "";
+            }
+
+            if (path.startsWith(rootPath) && path.length() > rootPath.length()
+                && path.charAt(rootPath.length()) == File.separatorChar) {
+                return path.substring(rootPath.length() + 1).replace(File.separatorChar, '/');
+            }
+
+            return null;
+        }
+
+        private static String relativize(final Path root, final Path path) {
+            return root.relativize(path).toString().replace(File.separatorChar, '/');
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link AnalysisBacklog}.
+ *
+ * @author Dirk Weigenand
+ */
+public class AnalysisBacklogTest {
+    /**
+     * registry of development components.
+     */
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * file the backlog is persisted to.
+     */
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        dcFactory = new DevelopmentComponentFactory();
+        file = File.createTempFile("sonar-backlog", ".txt");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testLoadWithoutFile() throws IOException {
+        assertTrue(new AnalysisBacklog(file).load(dcFactory).isEmpty());
+    }
+
+    @Test
+    public void testRoundTripKeepsOrder() throws IOException {
+        final DevelopmentComponent second = dcFactory.create("org.arachna", "b/second", DevelopmentComponentType.Java);
+        final DevelopmentComponent first = dcFactory.create("org.arachna", "a/first", DevelopmentComponentType.Java);
+
+        new AnalysisBacklog(file).save(Arrays.asList(second, first));
+
+        assertEquals(Arrays.asList(second, first), new AnalysisBacklog(file).load(dcFactory));
+    }
+
+    @Test
+    public void testUnknownComponentsAreDropped() throws IOException {
+        final DevelopmentComponent known = dcFactory.create("org.arachna", "known", DevelopmentComponentType.Java);
+        final DevelopmentComponent removed =
+            new DevelopmentComponent("removed", "org.arachna", DevelopmentComponentType.Java);
+
+        new AnalysisBacklog(file).save(Arrays.asList(removed, known));
+
+        assertEquals(Arrays.asList(known), new AnalysisBacklog(file).load(dcFactory));
+    }
+
+    @Test
+    public void testSavingEmptyBacklogDeletesFile() throws IOException {
+        final AnalysisBacklog backlog = new AnalysisBacklog(file);
+        backlog.save(Arrays.asList(dcFactory.create("org.arachna", "dc", DevelopmentComponentType.Java)));
+        assertTrue(file.exists());
+
+        backlog.save(Arrays.<DevelopmentComponent> asList());
+
+        assertFalse(file.exists());
+        assertTrue(backlog.load(dcFactory).isEmpty());
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link AnalysisHistory}.
+ *
+ * @author Dirk Weigenand
+ */
+public class AnalysisHistoryTest {
+    private DevelopmentComponent large;
+    private DevelopmentComponent medium;
+    private DevelopmentComponent small;
+    private DevelopmentComponent unknown;
+
+    /**
+     * instance under test.
+     */
+    private AnalysisHistory history;
+
+    @Before
+    public void setUp() {
+        large = new DevelopmentComponent("large", "org.arachna", DevelopmentComponentType.Java);
+        medium = new DevelopmentComponent("medium", "org.arachna", DevelopmentComponentType.Java);
+        small = new DevelopmentComponent("small", "org.arachna", DevelopmentComponentType.Java);
+        unknown = new DevelopmentComponent("unknown", "org.arachna", DevelopmentComponentType.Java);
+
+        final Map<String, Long> durations = new HashMap<String, Long>();
+        durations.put("org.arachna:large", 600L);
+        durations.put("org.arachna:medium", 300L);
+        durations.put("org.arachna:small", 100L);
+        history = new AnalysisHistory(durations);
+    }
+
+    @Test
+    public void testUnknownComponentIsExpectedToTakeLongest() {
+        assertEquals(600L, history.getExpectedDuration(unknown));
+    }
+
+    @Test
+    public void testSortLongestFirst() {
+        assertEquals(Arrays.asList(large, medium, small), history.sortLongestFirst(Arrays.asList(small, large, medium)));
+    }
+
+    @Test
+    public void testDeferredComponentsAreSortedFirst() {
+        assertEquals(Arrays.asList(medium, small, large, unknown),
+            history.sortLongestFirst(Arrays.asList(small, large, unknown, medium), Arrays.asList(small, medium)));
+    }
+
+    @Test
+    public void testDeferredComponentsLeadTheirShares() {
+        final List<List<DevelopmentComponent>> shares =
+            history.partition(Arrays.asList(large, medium, unknown, small), 2, Arrays.asList(small));
+
+        assertEquals(Arrays.asList(small, unknown), shares.get(0));
+        assertEquals(Arrays.asList(large, medium), shares.get(1));
+    }
+
+    @Test
+    public void testPartitionBalancesExpectedDurations() {
+        final List<List<DevelopmentComponent>> shares =
+            history.partition(Arrays.asList(small, medium, large, unknown), 2);
+
+        assertEquals(Arrays.asList(large, medium), shares.get(0));
+        assertEquals(Arrays.asList(unknown, small), shares.get(1));
+    }
+
+    @Test
+    public void testPartitionWithMoreSharesThanComponents() {
+        final List<List<DevelopmentComponent>> shares = history.partition(Arrays.asList(small), 3);
+
+        assertEquals(Arrays.asList(small), shares.get(0));
+        assertEquals(0, shares.get(1).size());
+        assertEquals(0, shares.get(2).size());
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import hudson.util.StreamTaskListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link AnalysisThrottle}.
+ *
+ * @author Dirk Weigenand
+ */
+public class AnalysisThrottleTest {
+    private static final String NODE = "agent";
+
+    /**
+     * instance under test.
+     */
+    private AnalysisThrottle throttle;
+
+    /**
+     * slots acquired by the threads started by {@link #acquireLater(String)}, tagged with their job.
+     */
+    private BlockingQueue<String> granted;
+
+    /**
+     * threads waiting for slots.
+     */
+    private final List<Thread> threads = new ArrayList<Thread>();
+
+    @Before
+    public void setUp() {
+        throttle = new AnalysisThrottle();
+        granted = new LinkedBlockingQueue<String>();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (final Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+    }
+
+    @Test
+    public void testAnalysesWaitForFreeSlot() throws InterruptedException {
+        throttle.setLimit(2);
+        final AnalysisThrottle.Slot first = acquire("job");
+        acquire("job");
+
+        acquireLater("job");
+        assertNull(granted.poll(200, TimeUnit.MILLISECONDS));
+
+        first.release();
+        assertEquals("job", granted.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, throttle.getRunning(NODE));
+    }
+
+    @Test
+    public void testReleasingTwiceFreesOneSlot() throws InterruptedException {
+        throttle.setLimit(1);
+        final AnalysisThrottle.Slot slot = acquire("job");
+        slot.release();
+        slot.release();
+
+        assertEquals(0, throttle.getRunning(NODE));
+    }
+
+    @Test
+    public void testLoweringLimitKeepsRunningAnalyses() throws InterruptedException {
+        throttle.setLimit(2);
+        final AnalysisThrottle.Slot first = acquire("job");
+        final AnalysisThrottle.Slot second = acquire("job");
+
+        throttle.setLimit(1);
+        assertEquals(2, throttle.getRunning(NODE));
+
+        acquireLater("job");
+        first.release();
+        assertNull(granted.poll(200, TimeUnit.MILLISECONDS));
+
+        second.release();
+        assertNotNull(granted.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, throttle.getRunning(NODE));
+    }
+
+    @Test
+    public void testRaisingLimitGrantsWaitingAnalyses() throws InterruptedException {
+        throttle.setLimit(1);
+        acquire("job");
+        acquireLater("job");
+        assertNull(granted.poll(200, TimeUnit.MILLISECONDS));
+
+        throttle.setLimit(2);
+        assertNotNull(granted.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testLimitCountsAnalysesStartedWithoutLimit() throws InterruptedException {
+        acquire("job");
+        acquire("job");
+        throttle.setLimit(2);
+
+        acquireLater("job");
+        assertNull(granted.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testFreeSlotGoesToJobRunningFewestAnalyses() throws InterruptedException {
+        throttle.setLimit(2);
+        final AnalysisThrottle.Slot first = acquire("busy");
+        acquire("busy");
+
+        awaitWaiting(acquireLater("busy"));
+        awaitWaiting(acquireLater("idle"));
+
+        first.release();
+        assertEquals("idle", granted.poll(5, TimeUnit.SECONDS));
+        assertNull(granted.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    private AnalysisThrottle.Slot acquire(final String job) throws InterruptedException {
+        return throttle.acquire(NODE, job, StreamTaskListener.fromStdout());
+    }
+
+    private Thread acquireLater(final String job) {
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    acquire(job);
+                    granted.add(job);
+                }
+                catch (final InterruptedException e) {
+                    // test finished
+                }
+            }
+        });
+        threads.add(thread);
+        thread.start();
+
+        return thread;
+    }
+
+    private void awaitWaiting(final Thread thread) throws InterruptedException {
+        while (thread.getState() != Thread.State.WAITING) {
+            Thread.sleep(10);
+        }
+    }
+}
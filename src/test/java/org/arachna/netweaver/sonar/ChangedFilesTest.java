@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import hudson.model.AbstractBuild;
+import hudson.scm.ChangeLogSet;
+import hudson.scm.EditType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link ChangedFiles}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ChangedFilesTest {
+    private final DevelopmentComponent component = new DevelopmentComponent("example/app", "org.arachna",
+        DevelopmentComponentType.Java);
+
+    private final DevelopmentComponent other = new DevelopmentComponent("example/lib", "org.arachna",
+        DevelopmentComponentType.Java);
+
+    private final List<ChangeLogSet.AffectedFile> files = new ArrayList<ChangeLogSet.AffectedFile>();
+
+    @Test
+    public void testPathsAreRelativeToComponent() {
+        edit("/ws/DI/SC1/_comp/org.arachna/example/app/_comp/src/org/arachna/B.java");
+        edit("org.arachna/example/app/_comp/src/org/arachna/A.java");
+        edit("org.arachna\\example\\lib\\_comp\\src\\org\\arachna\\C.java");
+
+        final ChangedFiles changedFiles = create();
+
+        assertEquals(Arrays.asList("src/org/arachna/A.java", "src/org/arachna/B.java"),
+            new ArrayList<String>(changedFiles.get(component)));
+        assertEquals(Arrays.asList("src/org/arachna/C.java"), new ArrayList<String>(changedFiles.get(other)));
+        assertTrue(changedFiles.isPartial(component));
+    }
+
+    @Test
+    public void testPrefixOfOtherComponentDoesNotMatch() {
+        edit("org.arachna/example/application/_comp/src/A.java");
+
+        final ChangedFiles changedFiles = create();
+
+        assertTrue(changedFiles.get(component).isEmpty());
+        assertFalse(changedFiles.isPartial(component));
+    }
+
+    @Test
+    public void testVendorSharingSuffixDoesNotMatch() {
+        edit("/ws/DI/SC1/_comp/xorg.arachna/example/app/_comp/src/A.java");
+        edit("xorg.arachna/example/lib/_comp/src/B.java");
+
+        final ChangedFiles changedFiles = create();
+
+        assertTrue(changedFiles.get(component).isEmpty());
+        assertTrue(changedFiles.get(other).isEmpty());
+        assertFalse(changedFiles.isPartial(component));
+    }
+
+    @Test
+    public void testFilesOutsideOfComponentsAreIgnored() {
+        edit("org.arachna/example/app/src/A.java");
+        edit(".confdef");
+
+        final ChangedFiles changedFiles = create();
+
+        assertTrue(changedFiles.get(component).isEmpty());
+        assertTrue(changedFiles.get(other).isEmpty());
+    }
+
+    @Test
+    public void testDeletionsAnalyseComponentCompletely() {
+        edit("org.arachna/example/app/_comp/src/A.java");
+        change("org.arachna/example/app/_comp/src/B.java", EditType.DELETE);
+        change("org.arachna/example/lib/_comp/src/C.java", EditType.ADD);
+
+        final ChangedFiles changedFiles = create();
+
+        assertTrue(changedFiles.get(component).isEmpty());
+        assertFalse(changedFiles.isPartial(component));
+        assertEquals(Arrays.asList("src/C.java"), new ArrayList<String>(changedFiles.get(other)));
+    }
+
+    private void edit(final String path) {
+        change(path, EditType.EDIT);
+    }
+
+    private void change(final String path, final EditType editType) {
+        final ChangeLogSet.AffectedFile file = mock(ChangeLogSet.AffectedFile.class);
+        when(file.getPath()).thenReturn(path);
+        when(file.getEditType()).thenReturn(editType);
+        files.add(file);
+    }
+
+    private ChangedFiles create() {
+        final ChangeLogSet.Entry entry = mock(ChangeLogSet.Entry.class);
+        doReturn(files).when(entry).getAffectedFiles();
+
+        final ChangeLogSet<?> changeSet = mock(ChangeLogSet.class);
+        doReturn(Arrays.asList(entry).iterator()).when(changeSet).iterator();
+
+        final AbstractBuild<?, ?> build = mock(AbstractBuild.class);
+        doReturn(changeSet).when(build).getChangeSet();
+
+        final Collection<DevelopmentComponent> components = Arrays.asList(component, other);
+
+        return new ChangedFiles(build, components);
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import hudson.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.sonar.SonarPomGenerator.DependencyDto;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unittest for {@link ClassPathIndex}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ClassPathIndexTest {
+    /**
+     * base location of the referenced development component.
+     */
+    private File baseLocation;
+
+    /**
+     * referenced development component not contained in a compartment.
+     */
+    private DevelopmentComponent component;
+
+    /**
+     * Build helper.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * instance under test.
+     */
+    private ClassPathIndex index;
+
+    @Before
+    public void setUp() throws IOException {
+        baseLocation = Files.createTempDirectory("classpath").toFile();
+        component = new DevelopmentComponent("dc", "org.arachna", DevelopmentComponentType.Java);
+
+        antHelper = Mockito.mock(AntHelper.class);
+        Mockito.when(antHelper.getBaseLocation(component)).thenReturn(baseLocation.getAbsolutePath());
+        Mockito.when(antHelper.getBaseLocation(component, "api")).thenReturn(
+            new File(baseLocation, "gen/default/public/api/lib/java").getAbsolutePath());
+        index = new ClassPathIndex(new WorkspaceSnapshot(antHelper));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteRecursive(baseLocation);
+    }
+
+    @Test
+    public void testComponentWithoutCompartmentAndJars() {
+        assertTrue(index.get(component, "api").getPaths().isEmpty());
+    }
+
+    @Test
+    public void testComponentWithoutCompartmentUsesVendorAsGroupId() throws IOException {
+        final File jar = new File(baseLocation, "gen/default/public/api/lib/java/org.arachna~dc.jar");
+        jar.getParentFile().mkdirs();
+        jar.createNewFile();
+
+        final DependencyDto dependency = index.get(component, "api");
+
+        assertEquals("org.arachna", dependency.getGroupId());
+        assertEquals(1, dependency.getPaths().size());
+        assertSame(dependency, index.get(component, "api"));
+    }
+}
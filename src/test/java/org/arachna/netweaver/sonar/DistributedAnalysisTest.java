@@ -0,0 +1,263 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import hudson.EnvVars;
+import hudson.FilePath;
+import hudson.Functions;
+import hudson.Util;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.arachna.netweaver.hudson.nwdi.NWDIBuild;
+import org.arachna.netweaver.hudson.nwdi.NWDIProject;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Unittest for {@link DistributedAnalysis} using two agents and a shell script in place of the sonar scanner CLI. The
+ * script checks that the sources were copied to the agent and keeps the rewritten analysis settings.
+ *
+ * @author Dirk Weigenand
+ */
+public class DistributedAnalysisTest {
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    /**
+     * the build's workspace.
+     */
+    private File workspace;
+
+    /**
+     * folder the stub scanner copies the analysis settings it was called with to.
+     */
+    private File results;
+
+    /**
+     * build helper.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * compartment containing the analysed development components.
+     */
+    private Compartment compartment;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeFalse(Functions.isWindows());
+
+        workspace = Files.createTempDirectory("workspace").toFile();
+        results = Files.createTempDirectory("sonar-results").toFile();
+        antHelper = mock(AntHelper.class);
+
+        final DevelopmentConfiguration configuration = new DevelopmentConfiguration("DI_XMPL_D");
+        compartment = Compartment.create("org.arachna", "SC", CompartmentState.Source, "caption");
+        configuration.add(compartment);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (workspace != null) {
+            Util.deleteRecursive(workspace);
+            Util.deleteRecursive(results);
+        }
+    }
+
+    @Test
+    public void testEachAgentAnalysesItsShareInRebasedWorkspace() throws Exception {
+        final Node first = jenkins.createOnlineSlave(Label.get("sonar"));
+        final Node second = jenkins.createOnlineSlave(Label.get("sonar"));
+        final List<DevelopmentComponent> components =
+            Arrays.asList(createComponent("first"), createComponent("second"));
+        final DistributedAnalysis analysis =
+            new DistributedAnalysis(createContext(), workspace.getAbsolutePath(), "sonar");
+        assertEquals(2, analysis.getAgents().size());
+
+        final List<DevelopmentComponentTiming> timings = new ArrayList<DevelopmentComponentTiming>();
+        final List<DevelopmentComponent> deferred = new ArrayList<DevelopmentComponent>();
+        final List<DevelopmentComponent> analysed =
+            analysis.run(new AnalysisHistory(Collections.<String, Long> emptyMap()), components,
+                Collections.<DevelopmentComponent> emptySet(), timings, deferred);
+
+        assertEquals(new HashSet<DevelopmentComponent>(components), new HashSet<DevelopmentComponent>(analysed));
+        assertTrue(deferred.isEmpty());
+
+        final Set<String> agentRoots = new HashSet<String>();
+
+        for (final File result : results.listFiles()) {
+            final Properties settings = load(result);
+            final String baseDir = settings.getProperty("sonar.projectBaseDir");
+            assertFalse(baseDir.startsWith(workspace.getAbsolutePath()));
+            assertTrue(settings.getProperty("sonar.java.binaries").startsWith(baseDir));
+
+            for (final Node agent : Arrays.asList(first, second)) {
+                if (baseDir.startsWith(agent.getRootPath().getRemote())) {
+                    agentRoots.add(agent.getRootPath().getRemote());
+                }
+            }
+        }
+
+        assertEquals("each agent analysed one development component", 2, agentRoots.size());
+
+        for (final Node agent : Arrays.asList(first, second)) {
+            assertFalse(agent.getRootPath().child("sonar-workspaces").child("nwdi_DI_XMPL_D").child("42").exists());
+        }
+    }
+
+    @Test
+    public void testBuildOutputOutsideOfComponentIsCopiedToAgent() throws Exception {
+        jenkins.createOnlineSlave(Label.get("sonar"));
+        final DevelopmentComponent component = createComponent("first", "gen/first/classes");
+        final DistributedAnalysis analysis =
+            new DistributedAnalysis(createContext(), workspace.getAbsolutePath(), "sonar");
+
+        final List<DevelopmentComponent> analysed =
+            analysis.run(new AnalysisHistory(Collections.<String, Long> emptyMap()), Arrays.asList(component),
+                Collections.<DevelopmentComponent> emptySet(), new ArrayList<DevelopmentComponentTiming>(),
+                new ArrayList<DevelopmentComponent>());
+
+        assertEquals(Arrays.asList(component), analysed);
+        assertEquals(1, results.listFiles().length);
+
+        final String binaries = load(results.listFiles()[0]).getProperty("sonar.java.binaries");
+        assertFalse(binaries.startsWith(workspace.getAbsolutePath()));
+        assertTrue(binaries.endsWith("gen/first/classes"));
+    }
+
+    @Test
+    public void testUserHomeOnAgentOutlivesBuild() throws Exception {
+        final Node agent = jenkins.createOnlineSlave(Label.get("sonar"));
+        final DevelopmentComponent component = createComponent("first");
+        final DistributedAnalysis analysis =
+            new DistributedAnalysis(createContext(), workspace.getAbsolutePath(), "sonar");
+
+        analysis.run(new AnalysisHistory(Collections.<String, Long> emptyMap()), Arrays.asList(component),
+            Collections.<DevelopmentComponent> emptySet(), new ArrayList<DevelopmentComponentTiming>(),
+            new ArrayList<DevelopmentComponent>());
+
+        final FilePath userHome = agent.getRootPath().child("sonar-workspaces").child("nwdi_DI_XMPL_D").child(".sonar");
+        assertEquals(userHome.getRemote(), load(results.listFiles()[0]).getProperty("sonar.userHome"));
+        assertTrue(userHome.child("cache/analyzer.jar").exists());
+        assertFalse(agent.getRootPath().child("sonar-workspaces").child("nwdi_DI_XMPL_D").child("42").exists());
+    }
+
+    private DevelopmentComponent createComponent(final String name) throws IOException {
+        return createComponent(name, String.format("DCs/org.arachna/%s/_comp/gen/default/classes", name));
+    }
+
+    /**
+     * Create a development component with one source file and its class file in the given output folder relative to
+     * the workspace.
+     */
+    private DevelopmentComponent createComponent(final String name, final String outputFolder) throws IOException {
+        final DevelopmentComponent component =
+            new DevelopmentComponent(name, "org.arachna", DevelopmentComponentType.Java);
+        compartment.add(component);
+
+        final File base = new File(workspace, String.format("DCs/org.arachna/%s/_comp", name));
+        final File source = new File(base, "src/org/arachna/A.java");
+        source.getParentFile().mkdirs();
+        Files.write(source.toPath(), "package org.arachna; class A {}".getBytes("UTF-8"));
+
+        final File classes = new File(workspace, outputFolder);
+        new File(classes, "org/arachna").mkdirs();
+        Files.write(new File(classes, "org/arachna/A.class").toPath(), new byte[] { 0 });
+        component.setOutputFolder(classes.getAbsolutePath());
+
+        when(antHelper.getBaseLocation(component)).thenReturn(base.getAbsolutePath());
+
+        return component;
+    }
+
+    private SonarAnalysisContext createContext() throws IOException {
+        final NWDIProject project = mock(NWDIProject.class);
+        doReturn("nwdi/DI_XMPL_D").when(project).getFullName();
+
+        final NWDIBuild build = mock(NWDIBuild.class);
+        doReturn(project).when(build).getProject();
+        doReturn(42).when(build).getNumber();
+        doReturn(new EnvVars()).when(build).getEnvironment(any(TaskListener.class));
+
+        final SonarPomGenerator generator =
+            new SonarPomGenerator(antHelper, new DevelopmentComponentFactory(), new TemplateCache());
+        generator.setScannerUserHome(new File(workspace, ".sonar").getAbsolutePath());
+
+        return new SonarAnalysisContext(build, null, StreamTaskListener.fromStdout(), generator, antHelper, null,
+            true, null, createScanner(), Long.MAX_VALUE, new AnalysisThrottle());
+    }
+
+    /**
+     * Create a stub scanner failing when the sources or class files of the development component are missing on the
+     * agent and copying the analysis settings into {@link #results} otherwise. Like the scanner it caches an analyzer
+     * in the sonar user home.
+     */
+    private SonarScanner createScanner() throws IOException {
+        final File script = new File(results.getParentFile(), results.getName() + ".sh");
+        script.deleteOnExit();
+
+        final String content =
+            String.format("#!/bin/sh%nfor a in \"$@\"; do case \"$a\" in -Dproject.settings=*) "
+                + "settings=\"${a#-Dproject.settings=}\";; esac; done%n"
+                + "base=$(sed -n 's/^sonar.projectBaseDir=//p' \"$settings\")%n"
+                + "test -f \"$base/src/org/arachna/A.java\" || exit 1%n"
+                + "binaries=$(sed -n 's/^sonar.java.binaries=//p' \"$settings\")%n"
+                + "test -f \"$binaries/org/arachna/A.class\" || exit 1%n"
+                + "home=$(sed -n 's/^sonar.userHome=//p' \"$settings\")%n"
+                + "mkdir -p \"$home/cache\" && touch \"$home/cache/analyzer.jar\" || exit 1%n"
+                + "cp \"$settings\" \"$(mktemp '%s/settings.XXXXXX')\"%n", results.getAbsolutePath());
+        Files.write(script.toPath(), content.getBytes("UTF-8"));
+        script.setExecutable(true);
+
+        return new SonarScanner(script.getAbsolutePath());
+    }
+
+    private Properties load(final File file) throws IOException {
+        final Properties properties = new Properties();
+        final InputStream input = new FileInputStream(file);
+
+        try {
+            properties.load(input);
+        }
+        finally {
+            input.close();
+        }
+
+        return properties;
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Unittest for {@link ExclusionMatcher}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ExclusionMatcherTest {
+    /**
+     * instance under test.
+     */
+    private final ExclusionMatcher matcher = new ExclusionMatcher(Arrays.asList("**/wdp/**", "**/*Proxy.java"));
+
+    @Test
+    public void testMatches() {
+        assertTrue(matcher.matches("src/packages/com/example/wdp/IPrivateView.java"));
+        assertTrue(matcher.matches("src/packages/com/example/ws/OrderProxy.java"));
+        assertFalse(matcher.matches("src/packages/com/example/ws/Order.java"));
+        assertFalse(matcher.matches("src/packages/com/example/wdpx/View.java"));
+    }
+
+    @Test
+    public void testFolderWithoutExcludedFilesIsKept() {
+        final ExclusionMatcher.Pruned pruned =
+            matcher.prune("src", new TreeSet<String>(Arrays.asList("src/a/One.java", "src/b/Two.java")));
+
+        assertEquals(Arrays.asList("src"), pruned.getPaths());
+        assertEquals(0, pruned.getExcluded());
+    }
+
+    @Test
+    public void testFolderIsSplitIntoSurvivingFilesAndFolders() {
+        final ExclusionMatcher.Pruned pruned =
+            matcher.prune("src", new TreeSet<String>(Arrays.asList("src/a/One.java", "src/a/wdp/Gen.java",
+                "src/a/wdp/Gen2.java", "src/b/Two.java", "src/b/TwoProxy.java", "src/c/Three.java")));
+
+        assertEquals(Arrays.asList("src/a/One.java", "src/b/Two.java", "src/c"), pruned.getPaths());
+        assertEquals(3, pruned.getExcluded());
+    }
+
+    @Test
+    public void testFolderWithOnlyExcludedFilesIsDropped() {
+        final ExclusionMatcher.Pruned pruned =
+            matcher.prune("src", new TreeSet<String>(Arrays.asList("src/wdp/Gen.java", "src/x/wdp/Gen.java")));
+
+        assertEquals(0, pruned.getPaths().size());
+        assertEquals(2, pruned.getExcluded());
+    }
+
+    @Test
+    public void testLargeMixedFolderIsNotSplit() {
+        final TreeSet<String> files = new TreeSet<String>();
+
+        for (int i = 0; i <= ExclusionMatcher.MAX_PATHS; i++) {
+            files.add(String.format("src/a/One%d.java", i));
+            files.add(String.format("src/a/One%dProxy.java", i));
+        }
+
+        final ExclusionMatcher.Pruned pruned = matcher.prune("src", files);
+
+        assertEquals(Arrays.asList("src"), pruned.getPaths());
+        assertEquals(ExclusionMatcher.MAX_PATHS + 1, pruned.getExcluded());
+    }
+}
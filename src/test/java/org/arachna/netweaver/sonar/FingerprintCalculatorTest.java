@@ -0,0 +1,144 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unittest for {@link FingerprintCalculator}.
+ *
+ * @author Dirk Weigenand
+ */
+public class FingerprintCalculatorTest {
+    /**
+     * temporary folder holding the development components.
+     */
+    private File folder;
+
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * development component to calculate fingerprints for.
+     */
+    private DevelopmentComponent component;
+
+    /**
+     * Build helper.
+     */
+    private AntHelper antHelper;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("fingerprint").toFile();
+        dcFactory = new DevelopmentComponentFactory();
+
+        final DevelopmentConfiguration configuration = new DevelopmentConfiguration("DI_XMPL_D");
+        final Compartment compartment = Compartment.create("org.arachna", "SC", CompartmentState.Source, "caption");
+        configuration.add(compartment);
+        component = dcFactory.create("org.arachna", "dc", DevelopmentComponentType.Java);
+        compartment.add(component);
+        final DevelopmentComponent library = dcFactory.create("org.arachna", "lib", DevelopmentComponentType.Java);
+        compartment.add(library);
+        component.add(new PublicPartReference("org.arachna", "lib", "api"));
+
+        write("dc/src/packages/org/arachna/A.java", "class A {}");
+        write("lib/gen/default/public/api/lib/java/org.arachna~lib.jar", "jar");
+
+        antHelper = Mockito.mock(AntHelper.class);
+        Mockito.when(antHelper.getBaseLocation(component)).thenReturn(new File(folder, "dc").getAbsolutePath());
+        Mockito.when(antHelper.getBaseLocation(library)).thenReturn(new File(folder, "lib").getAbsolutePath());
+        Mockito.when(antHelper.getBaseLocation(library, "api")).thenReturn(
+            new File(folder, "lib/gen/default/public/api/lib/java").getAbsolutePath());
+        Mockito.when(antHelper.createSourceFileSets(component)).thenReturn(Arrays.asList("src/packages"));
+    }
+
+    @After
+    public void tearDown() {
+        delete(folder);
+    }
+
+    @Test
+    public void testUnchangedComponentKeepsFingerprint() throws Exception {
+        assertEquals(calculate("1.6|maven", false), calculate("1.6|maven", false));
+    }
+
+    @Test
+    public void testChangedSourceChangesFingerprint() throws Exception {
+        final String before = calculate("1.6|maven", false);
+        write("dc/src/packages/org/arachna/A.java", "class A { int a; }");
+
+        assertFalse(before.equals(calculate("1.6|maven", false)));
+    }
+
+    @Test
+    public void testChangedJarChangesFingerprint() throws Exception {
+        final String before = calculate("1.6|maven", false);
+        write("lib/gen/default/public/api/lib/java/org.arachna~lib.jar", "changed jar");
+
+        assertFalse(before.equals(calculate("1.6|maven", false)));
+    }
+
+    @Test
+    public void testChangedConfigurationChangesFingerprint() throws Exception {
+        final String before = calculate("1.6|maven", false);
+
+        assertFalse(before.equals(calculate("1.6|scanner", false)));
+        assertFalse(before.equals(calculate("1.7|maven", false)));
+        assertFalse(before.equals(calculate("1.6|maven", true)));
+    }
+
+    /**
+     * Calculate the fingerprint of the development component using a fresh snapshot of the workspace (as every build
+     * does).
+     */
+    private String calculate(final String configuration, final boolean reuseBuildOutput) throws Exception {
+        final SonarPomGenerator generator = new SonarPomGenerator(antHelper, dcFactory, new TemplateCache());
+        generator.setReuseBuildOutput(reuseBuildOutput);
+        final FingerprintCalculator calculator = new FingerprintCalculator(generator, configuration, 2);
+
+        try {
+            return calculator.calculate(component);
+        }
+        finally {
+            calculator.shutdown();
+        }
+    }
+
+    private void write(final String path, final String content) throws IOException {
+        final File file = new File(folder, path);
+        file.getParentFile().mkdirs();
+        Files.write(file.toPath(), content.getBytes("UTF-8"));
+    }
+
+    private void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link FingerprintStore}.
+ *
+ * @author Dirk Weigenand
+ */
+public class FingerprintStoreTest {
+    private final DevelopmentComponent analysed = new DevelopmentComponent("analysed", "org.arachna",
+        DevelopmentComponentType.Java);
+
+    private final DevelopmentComponent unknown = new DevelopmentComponent("unknown", "org.arachna",
+        DevelopmentComponentType.Java);
+
+    /**
+     * file the fingerprints are persisted to.
+     */
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("sonar-fingerprints", ".properties");
+        file.delete();
+    }
+
+    @After
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    public void testLoadWithoutFile() throws IOException {
+        final FingerprintStore store = new FingerprintStore(file);
+        store.load();
+
+        assertFalse(store.isUnchanged(analysed, "abc"));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        final FingerprintStore store = new FingerprintStore(file);
+        store.put(analysed, "abc");
+        store.save();
+
+        final FingerprintStore loaded = new FingerprintStore(file);
+        loaded.load();
+
+        assertTrue(loaded.isUnchanged(analysed, "abc"));
+        assertFalse(loaded.isUnchanged(analysed, "def"));
+        assertFalse(loaded.isUnchanged(unknown, "abc"));
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import hudson.EnvVars;
+import hudson.Functions;
+import hudson.Launcher;
+import hudson.model.StreamBuildListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link MavenWorker} using a shell script recording its arguments in place of the maven daemon client.
+ *
+ * @author Dirk Weigenand
+ */
+public class MavenWorkerTest {
+    /**
+     * temporary folder holding the stub daemon client and its output.
+     */
+    private File folder;
+
+    /**
+     * folder the daemons of the build are registered in.
+     */
+    private File daemonStorage;
+
+    /**
+     * file the stub daemon client writes its arguments to.
+     */
+    private File arguments;
+
+    /**
+     * listener receiving the output of the stub.
+     */
+    private StreamBuildListener listener;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeFalse(Functions.isWindows());
+
+        folder = Files.createTempDirectory("mvnd").toFile();
+        daemonStorage = new File(folder, ".mvnd/42");
+        arguments = new File(folder, "arguments");
+        listener = new StreamBuildListener(System.out, Charset.defaultCharset());
+    }
+
+    @After
+    public void tearDown() {
+        if (folder != null) {
+            delete(folder);
+        }
+    }
+
+    @Test
+    public void testGoalsAreRunByDaemonOfBuild() throws Exception {
+        assertTrue(createWorker(0).run(createLauncher(), listener, new EnvVars(), "sonar:sonar", "/tmp/sonar-pom.xml",
+            "sonar.projectVersion=1.0", "-Xmx1g -XX:+UseG1GC"));
+
+        assertEquals(Arrays.asList("-B", "-f", "/tmp/sonar-pom.xml", "sonar:sonar", "-Dsonar.projectVersion=1.0",
+            "-Dmvnd.daemonStorage=" + daemonStorage.getAbsolutePath(), "-Dmvnd.jvmArgs=-Xmx1g -XX:+UseG1GC"),
+            readArguments());
+    }
+
+    @Test
+    public void testOnlyDaemonsOfBuildAreStopped() throws Exception {
+        daemonStorage.mkdirs();
+        createWorker(0).stop(createLauncher(), listener);
+
+        assertEquals(Arrays.asList("--stop", "-Dmvnd.daemonStorage=" + daemonStorage.getAbsolutePath()),
+            readArguments());
+        assertFalse(daemonStorage.exists());
+    }
+
+    @Test
+    public void testFailedBuildIsReported() throws Exception {
+        final MavenWorker worker = createWorker(1);
+
+        assertFalse(worker.run(createLauncher(), listener, new EnvVars(), "sonar:sonar", "/tmp/sonar-pom.xml", "", ""));
+        assertTrue(worker.isAlive());
+    }
+
+    @Test
+    public void testDeadDaemonFallsBackToForkedMaven() throws Exception {
+        final MavenWorker worker = createWorker(3);
+
+        assertNull(worker.run(createLauncher(), listener, new EnvVars(), "sonar:sonar", "/tmp/sonar-pom.xml", "", ""));
+        assertFalse(worker.isAlive());
+    }
+
+    private List<String> readArguments() throws IOException {
+        return Files.readAllLines(arguments.toPath(), Charset.forName("UTF-8"));
+    }
+
+    private Launcher createLauncher() {
+        return new Launcher.LocalLauncher(listener);
+    }
+
+    private MavenWorker createWorker(final int exitCode) throws IOException {
+        final File script = new File(folder, "mvnd");
+        final String content =
+            String.format("#!/bin/sh%nfor a in \"$@\"; do echo \"$a\"; done > '%s'%nexit %d%n",
+                arguments.getAbsolutePath(), exitCode);
+        Files.write(script.toPath(), content.getBytes("UTF-8"));
+        script.setExecutable(true);
+
+        return new MavenWorker(script.getAbsolutePath(), daemonStorage.getAbsolutePath());
+    }
+
+    private void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}
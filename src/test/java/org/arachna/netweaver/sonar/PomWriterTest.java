@@ -0,0 +1,91 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link PomWriter}.
+ *
+ * @author Dirk Weigenand
+ */
+public class PomWriterTest {
+    /**
+     * modification time of the existing pom.
+     */
+    private static final long LAST_MODIFIED = 1000000000000L;
+
+    /**
+     * temporary folder holding the pom.
+     */
+    private File folder;
+
+    /**
+     * the pom to write.
+     */
+    private File pom;
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("pom-writer").toFile();
+        pom = new File(folder, "sonar-pom.xml");
+        Files.write(pom.toPath(), "<project/>".getBytes("UTF-8"));
+        pom.setLastModified(LAST_MODIFIED);
+    }
+
+    @After
+    public void tearDown() {
+        for (final File file : folder.listFiles()) {
+            file.delete();
+        }
+
+        folder.delete();
+    }
+
+    @Test
+    public void testUnchangedPomIsNotWritten() throws IOException {
+        final PomWriter writer = new PomWriter();
+
+        assertFalse(writer.write(pom, "<project/>".getBytes("UTF-8")));
+        assertEquals(LAST_MODIFIED, pom.lastModified());
+        assertEquals(1, writer.getReused());
+        assertEquals(0, writer.getWritten());
+    }
+
+    @Test
+    public void testChangedPomIsReplaced() throws IOException {
+        final PomWriter writer = new PomWriter();
+
+        assertTrue(writer.write(pom, "<project></project>".getBytes("UTF-8")));
+        assertArrayEquals("<project></project>".getBytes("UTF-8"), Files.readAllBytes(pom.toPath()));
+        assertEquals(1, writer.getWritten());
+        assertEquals(1, folder.listFiles().length);
+    }
+
+    @Test
+    public void testPomIsReplacedWithoutAtomicMove() throws IOException {
+        final PomWriter writer = new PomWriter() {
+            @Override
+            void moveAtomically(final File source, final File target) throws IOException {
+                throw new AtomicMoveNotSupportedException(source.getPath(), target.getPath(), "not supported");
+            }
+        };
+
+        assertTrue(writer.write(pom, "<project></project>".getBytes("UTF-8")));
+        assertArrayEquals("<project></project>".getBytes("UTF-8"), Files.readAllBytes(pom.toPath()));
+        assertEquals(1, folder.listFiles().length);
+    }
+}
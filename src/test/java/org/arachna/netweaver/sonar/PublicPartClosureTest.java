@@ -0,0 +1,101 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.dc.types.PublicPartReference;
+import org.arachna.netweaver.sonar.PublicPartClosure.UsedPublicPart;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link PublicPartClosure}.
+ *
+ * @author Dirk Weigenand
+ */
+public class PublicPartClosureTest {
+    private static final String VENDOR = "org.arachna";
+
+    private DevelopmentComponentFactory dcFactory;
+
+    /**
+     * instance under test.
+     */
+    private PublicPartClosure closure;
+
+    @Before
+    public void setUp() {
+        dcFactory = new DevelopmentComponentFactory();
+        closure = new PublicPartClosure(dcFactory);
+    }
+
+    @Test
+    public void testDirectUsagesComeFirst() {
+        final DevelopmentComponent app = create("app");
+        create("lib");
+        create("util");
+        create("base");
+        use("app", "lib");
+        use("app", "util");
+        use("lib", "base");
+
+        assertEquals(Arrays.asList("lib", "util", "base"), getNames(closure.get(app)));
+    }
+
+    @Test
+    public void testSharedPublicPartsAreListedOnce() {
+        final DevelopmentComponent app = create("app");
+        create("lib");
+        create("util");
+        create("base");
+        use("app", "lib");
+        use("app", "util");
+        use("lib", "base");
+        use("util", "base");
+
+        assertEquals(Arrays.asList("lib", "util", "base"), getNames(closure.get(app)));
+    }
+
+    @Test
+    public void testCyclesAreCut() {
+        final DevelopmentComponent app = create("app");
+        final DevelopmentComponent a = create("a");
+        final DevelopmentComponent b = create("b");
+        create("c");
+        use("app", "a");
+        use("a", "b");
+        use("b", "a");
+        use("b", "c");
+
+        assertEquals(Arrays.asList("a", "b", "c"), getNames(closure.get(app)));
+        assertEquals(Arrays.asList("b", "c"), getNames(closure.get(a)));
+        assertEquals(Arrays.asList("a", "c"), getNames(closure.get(b)));
+    }
+
+    private DevelopmentComponent create(final String name) {
+        return dcFactory.create(VENDOR, name, DevelopmentComponentType.Java);
+    }
+
+    private void use(final String user, final String used) {
+        dcFactory.get(VENDOR, user).add(new PublicPartReference(VENDOR, used, "api"));
+    }
+
+    private List<String> getNames(final List<UsedPublicPart> publicParts) {
+        final List<String> names = new ArrayList<String>();
+
+        for (final UsedPublicPart publicPart : publicParts) {
+            names.add(publicPart.getComponent().getName());
+        }
+
+        return names;
+    }
+}
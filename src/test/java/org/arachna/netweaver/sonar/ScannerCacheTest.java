@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.Util;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link ScannerCache} using a temporary folder laid out like <code>JENKINS_HOME</code> with a job
+ * workspace.
+ *
+ * @author Dirk Weigenand
+ */
+public class ScannerCacheTest {
+    private static final byte[] ANALYZER = "analyzer".getBytes();
+
+    /**
+     * temporary folder playing the role of <code>JENKINS_HOME</code>.
+     */
+    private File home;
+
+    /**
+     * folder containing the archives of all tracks.
+     */
+    private File store;
+
+    /**
+     * the sonar user home in the job's workspace.
+     */
+    private File userHome;
+
+    @Before
+    public void setUp() throws IOException {
+        home = Files.createTempDirectory("jenkins-home").toFile();
+        store = new File(home, "sonar-cache");
+        userHome = new File(home, "workspace/track/.sonar");
+        new File(userHome, "cache").mkdirs();
+        Files.write(new File(userHome, "cache/analyzer.jar").toPath(), ANALYZER);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteRecursive(home);
+    }
+
+    @Test
+    public void testRestoreWhenUserHomeIsMissing() throws Exception {
+        create(Long.MAX_VALUE).archive(StreamTaskListener.fromStdout());
+        Util.deleteRecursive(userHome);
+
+        create(Long.MAX_VALUE).restore(StreamTaskListener.fromStdout());
+
+        assertArrayEquals(ANALYZER, Files.readAllBytes(new File(userHome, "cache/analyzer.jar").toPath()));
+    }
+
+    @Test
+    public void testRestoreKeepsExistingUserHome() throws Exception {
+        create(Long.MAX_VALUE).archive(StreamTaskListener.fromStdout());
+        Files.write(new File(userHome, "cache/analyzer.jar").toPath(), "updated".getBytes());
+
+        create(Long.MAX_VALUE).restore(StreamTaskListener.fromStdout());
+
+        assertArrayEquals("updated".getBytes(), Files.readAllBytes(new File(userHome, "cache/analyzer.jar").toPath()));
+    }
+
+    @Test
+    public void testRestoreWithoutArchive() throws Exception {
+        Util.deleteRecursive(userHome);
+
+        create(Long.MAX_VALUE).restore(StreamTaskListener.fromStdout());
+
+        assertFalse(userHome.exists());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedArchivesAreEvictedFirst() throws Exception {
+        create(Long.MAX_VALUE).archive(StreamTaskListener.fromStdout());
+        final File own = new File(store, "track.zip");
+        assertTrue(own.isFile());
+
+        final File notAnArchive = createFile("notes.txt", 0, 1000L);
+        final File oldest = createFile("oldest.zip", 100, 2000L);
+        final File older = createFile("older.zip", 100, 3000L);
+        final File recent = createFile("recent.zip", 100, 4000L);
+
+        create(own.length() + 150).archive(StreamTaskListener.fromStdout());
+
+        assertFalse(oldest.exists());
+        assertFalse(older.exists());
+        assertTrue(recent.exists());
+        assertTrue(notAnArchive.exists());
+        assertTrue(own.exists());
+    }
+
+    @Test
+    public void testOwnArchiveIsNeverEvicted() throws Exception {
+        final File other = createFile("other.zip", 100, 1000L);
+
+        create(0).archive(StreamTaskListener.fromStdout());
+
+        assertFalse(other.exists());
+        assertTrue(new File(store, "track.zip").isFile());
+    }
+
+    private ScannerCache create(final long maxSize) {
+        return new ScannerCache(store, maxSize, "track", userHome);
+    }
+
+    private File createFile(final String name, final int length, final long lastModified) throws IOException {
+        store.mkdirs();
+
+        final File file = new File(store, name);
+        Files.write(file.toPath(), new byte[length]);
+        file.setLastModified(lastModified);
+
+        return file;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+
+import java.util.Arrays;
+
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+/**
+ * Unittest for {@link SonarMetricsAction}.
+ *
+ * @author Dirk Weigenand
+ */
+public class SonarMetricsActionTest {
+    @Rule
+    public JenkinsRule jenkins = new JenkinsRule();
+
+    @Test
+    public void testTimingsBySlowest() {
+        final DevelopmentComponentTiming fast = createTiming("fast", 10);
+        final DevelopmentComponentTiming slow = createTiming("slow", 30);
+        final DevelopmentComponentTiming medium = createTiming("medium", 20);
+        final SonarMetricsAction action = new SonarMetricsAction(Arrays.asList(fast, slow, medium), 100);
+
+        assertEquals(Arrays.asList(slow, medium, fast), action.getTimingsBySlowest());
+        assertEquals(Arrays.asList(fast, slow, medium), action.getTimings());
+    }
+
+    @Test
+    public void testGetTiming() {
+        final DevelopmentComponentTiming timing = createTiming("dc", 10);
+        final SonarMetricsAction action = new SonarMetricsAction(Arrays.asList(timing), 100);
+
+        assertSame(timing, action.getTiming("org.arachna:dc"));
+        assertNull(action.getTiming("org.arachna:unknown"));
+    }
+
+    @Test
+    public void testTimelineIsExportedAsJson() throws Exception {
+        final FreeStyleProject project = jenkins.createFreeStyleProject();
+        final FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+        build.addAction(new SonarMetricsAction(Arrays.asList(createTiming("dc", 10)), 1234));
+
+        final JSONObject timeline =
+            JSONObject.fromObject(jenkins.createWebClient()
+                .goTo(build.getUrl() + "sonarTimeline/api/json", "application/json").getWebResponse()
+                .getContentAsString());
+
+        assertEquals(1234, timeline.getLong("duration"));
+
+        final JSONArray timings = timeline.getJSONArray("timings");
+        assertEquals(1, timings.size());
+        assertEquals("dc", timings.getJSONObject(0).getString("name"));
+        assertEquals(10, timings.getJSONObject(0).getLong("maven"));
+        assertTrue(timings.getJSONObject(0).has("total"));
+    }
+
+    static DevelopmentComponentTiming createTiming(final String name, final long maven) {
+        final DevelopmentComponentTiming timing = new DevelopmentComponentTiming("org.arachna", name, "Java");
+        timing.addMaven(maven);
+
+        return timing;
+    }
+}
@@ -3,12 +3,21 @@
  */
 package org.arachna.netweaver.sonar;
 
+import hudson.Util;
+
+import java.io.File;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.arachna.ant.AntHelper;
 import org.arachna.netweaver.dc.types.Compartment;
@@ -17,7 +26,6 @@ import org.arachna.netweaver.dc.types.DevelopmentComponent;
 import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
 import org.arachna.netweaver.dc.types.DevelopmentComponentType;
 import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
-import org.arachna.velocity.VelocityHelper;
 import org.custommonkey.xmlunit.SimpleNamespaceContext;
 import org.custommonkey.xmlunit.XMLTestCase;
 import org.custommonkey.xmlunit.XMLUnit;
@@ -62,6 +70,11 @@ public class SonarPomGeneratorTest extends XMLTestCase {
 
     private DevelopmentComponentFactory dcFactory;
 
+    /**
+     * cache for the template used by the generator.
+     */
+    private TemplateCache templates;
+
     /**
      * @throws java.lang.Exception
      */
@@ -73,8 +86,8 @@ public class SonarPomGeneratorTest extends XMLTestCase {
 
         dcFactory = new DevelopmentComponentFactory();
         antHelper = Mockito.mock(AntHelper.class);
-        generator =
-            new SonarPomGenerator(antHelper, dcFactory, new VelocityHelper().getVelocityEngine(), Calendar.getInstance().getTimeInMillis());
+        templates = Mockito.spy(new TemplateCache());
+        generator = new SonarPomGenerator(antHelper, dcFactory, templates);
     }
 
     /**
@@ -114,11 +127,139 @@ public class SonarPomGeneratorTest extends XMLTestCase {
      */
     @Test
     public final void testExecuteWithOneSourceFolder() throws IOException {
+        assertOneSourceFolder();
+    }
+
+    /**
+     * Test that the streaming pom writer produces the same source folders as the velocity template.
+     */
+    @Test
+    public final void testStreamingPomWriterWithOneSourceFolder() {
+        generator.setStreamingPomWriter(true);
+        assertOneSourceFolder();
+    }
+
+    /**
+     * Assert that the source folder of a development component with one source folder is passed to the build helper
+     * plugin.
+     */
+    private void assertOneSourceFolder() {
         final String loneSourceDir = "packages";
         Mockito.when(antHelper.createSourceFileSets(component)).thenReturn(Arrays.asList(loneSourceDir));
         assertXpathEvaluatesTo(loneSourceDir, "/project/build/plugins/plugin/executions/execution/configuration/sources/source/text()");
     }
 
+    /**
+     * Test that the streaming pom writer produces the same pom as the velocity template.
+     *
+     * @throws Exception
+     */
+    @Test
+    public final void testStreamingPomWriterIsEquivalentToTemplate() throws Exception {
+        final File workspace = Files.createTempDirectory("R&D").toFile();
+
+        try {
+            final File base = new File(workspace, "DCs/org.arachna/dc/_comp");
+            final File classes = new File(base, "gen/default/classes");
+            classes.mkdirs();
+            Files.write(new File(classes, "A.class").toPath(), new byte[] { 0 });
+            component.setOutputFolder(classes.getAbsolutePath());
+            new File(base, "target/surefire-reports").mkdirs();
+
+            Mockito.when(antHelper.createSourceFileSets(component)).thenReturn(Arrays.asList("packages"));
+            Mockito.when(antHelper.getBaseLocation(component)).thenReturn(base.getAbsolutePath());
+            generator.setReuseBuildOutput(true);
+            generator.setScannerUserHome(new File(workspace, ".sonar").getAbsolutePath());
+            generator.setAnalysisOptions(Arrays.asList(new AnalysisOptions("", "-Xmx1g", "2", "classes", 4,
+                "-Xmx512m")));
+
+            final StringWriter velocity = new StringWriter();
+            generator.execute(component, velocity);
+            generator.setStreamingPomWriter(true);
+            final StringWriter streamed = new StringWriter();
+            generator.execute(component, streamed);
+
+            final boolean ignoreWhitespace = XMLUnit.getIgnoreWhitespace();
+
+            try {
+                XMLUnit.setIgnoreWhitespace(true);
+                assertXMLEqual(velocity.toString(), streamed.toString());
+            }
+            finally {
+                XMLUnit.setIgnoreWhitespace(ignoreWhitespace);
+            }
+
+            assertXpathEvaluatesTo("2", "/project/build/plugins/plugin/configuration/forkCount/text()",
+                streamed.toString());
+            assertXpathEvaluatesTo(classes.getAbsolutePath(), "/project/build/outputDirectory/text()",
+                velocity.toString());
+            assertXpathEvaluatesTo(new File(workspace, ".sonar").getAbsolutePath(),
+                "/project/properties/sonar.userHome/text()", velocity.toString());
+        }
+        finally {
+            Util.deleteRecursive(workspace);
+        }
+    }
+
+    /**
+     * Test that the velocity template escapes user supplied settings like the streaming pom writer.
+     *
+     * @throws Exception
+     */
+    @Test
+    public final void testTemplateEscapesArgLine() throws Exception {
+        final String argLine = "-Dmarker=\"a&b\" -Dtag=<c>";
+        generator.setAnalysisOptions(Arrays.asList(new AnalysisOptions("", "", "", "", 0, argLine)));
+
+        final StringWriter velocity = new StringWriter();
+        generator.execute(component, velocity);
+        generator.setStreamingPomWriter(true);
+        final StringWriter streamed = new StringWriter();
+        generator.execute(component, streamed);
+
+        assertXpathEvaluatesTo(argLine, "/project/build/plugins/plugin/configuration/argLine/text()",
+            velocity.toString());
+        assertXpathEvaluatesTo(argLine, "/project/build/plugins/plugin/configuration/argLine/text()",
+            streamed.toString());
+    }
+
+    /**
+     * Test that the pom template is parsed only once when generating poms for many development components concurrently.
+     *
+     * @throws Exception
+     */
+    @Test
+    public final void testTemplateIsParsedOnlyOnce() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<String>> results = new ArrayList<Future<String>>();
+
+        try {
+            for (int i = 0; i < 200; i++) {
+                final DevelopmentComponent dc =
+                    new DevelopmentComponent("dc" + i, "org.arachna", DevelopmentComponentType.Java);
+                compartment.add(dc);
+                results.add(executor.submit(new Callable<String>() {
+                    @Override
+                    public String call() throws IOException {
+                        final StringWriter result = new StringWriter();
+                        generator.execute(dc, result);
+
+                        return result.toString();
+                    }
+                }));
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                assertXpathEvaluatesTo("DI_XMPL_D-dc" + i, "/project/name/text()", results.get(i).get());
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        Mockito.verify(templates, Mockito.times(1)).parse(SonarPomGenerator.TEMPLATE);
+    }
+
     private void assertXpathEvaluatesTo(final String expected, final String xPath) {
         try {
             final StringWriter result = new StringWriter();
@@ -0,0 +1,170 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.Compartment;
+import org.arachna.netweaver.dc.types.CompartmentState;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentFactory;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.arachna.netweaver.dc.types.DevelopmentConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unittest for {@link SonarProjectPropertiesGenerator}.
+ *
+ * @author Dirk Weigenand
+ */
+public class SonarProjectPropertiesGeneratorTest {
+    /**
+     * base location of the development component.
+     */
+    private File baseLocation;
+
+    /**
+     * compartment containing the development components.
+     */
+    private Compartment compartment;
+
+    /**
+     * Build helper.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * generator providing the data for the analysis (spied to stub the test source folders).
+     */
+    private SonarPomGenerator pomGenerator;
+
+    /**
+     * instance under test.
+     */
+    private SonarProjectPropertiesGenerator generator;
+
+    @Before
+    public void setUp() throws IOException {
+        baseLocation = Files.createTempDirectory("properties").toFile();
+
+        final DevelopmentConfiguration configuration = new DevelopmentConfiguration("DI_XMPL_D");
+        compartment = Compartment.create("org.arachna", "SC", CompartmentState.Source, "caption");
+        configuration.add(compartment);
+
+        antHelper = Mockito.mock(AntHelper.class);
+        pomGenerator =
+            Mockito.spy(new SonarPomGenerator(antHelper, new DevelopmentComponentFactory(), new TemplateCache()));
+        generator = new SonarProjectPropertiesGenerator(pomGenerator);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Util.deleteRecursive(baseLocation);
+    }
+
+    @Test
+    public void testTestFoldersAreRemovedFromSources() throws IOException {
+        final DevelopmentComponent component =
+            createComponent(DevelopmentComponentType.J2EEWebModule, "source", "test");
+        Mockito.doReturn(Arrays.asList("test")).when(pomGenerator).getTestSourceFolders(component);
+
+        final Map<String, String> properties = createProperties(component);
+
+        assertEquals("source", properties.get("sonar.sources"));
+        assertEquals("test", properties.get("sonar.tests"));
+    }
+
+    @Test
+    public void testTestFoldersBelowSourcesAreExcluded() throws IOException {
+        final DevelopmentComponent component = createComponent(DevelopmentComponentType.Java, "src/test");
+        Mockito.doReturn(Arrays.asList("src/test")).when(pomGenerator).getTestSourceFolders(component);
+
+        final Map<String, String> properties = createProperties(component);
+
+        assertEquals("src", properties.get("sonar.sources"));
+        assertEquals("src/test", properties.get("sonar.tests"));
+        assertTrue(Arrays.asList(properties.get("sonar.exclusions").split(",")).contains("src/test/**"));
+    }
+
+    @Test
+    public void testSourcesAreWrittenWhenEmpty() throws IOException {
+        final DevelopmentComponent component = createComponent(DevelopmentComponentType.Java, "test");
+        Mockito.doReturn(Arrays.asList("test")).when(pomGenerator).getTestSourceFolders(component);
+
+        final Map<String, String> properties = createProperties(component);
+
+        assertEquals("", properties.get("sonar.sources"));
+        assertEquals("test", properties.get("sonar.tests"));
+    }
+
+    @Test
+    public void testBinariesAreOmittedWithoutBuildOutput() throws IOException {
+        final DevelopmentComponent component = createComponent(DevelopmentComponentType.Java, "src");
+        pomGenerator.setReuseBuildOutput(true);
+        component.setOutputFolder(new File(baseLocation, "gen/default/classes").getAbsolutePath());
+
+        assertFalse(createProperties(component).containsKey("sonar.java.binaries"));
+
+        final File classes = new File(baseLocation, "gen/default/classes");
+        classes.mkdirs();
+        Files.write(new File(classes, "A.class").toPath(), new byte[] { 0 });
+
+        assertEquals(classes.getAbsolutePath(), createProperties(component).get("sonar.java.binaries"));
+    }
+
+    @Test
+    public void testValuesAreEscaped() throws IOException {
+        final DevelopmentComponent component = createComponent(DevelopmentComponentType.Java, "src");
+        final String description = " \u00dcbersicht: a=b #1\\c\n";
+        Mockito.doReturn(description).when(component).getDescription();
+
+        final StringWriter writer = new StringWriter();
+        generator.execute(component, writer, new DevelopmentComponentTiming(component));
+
+        final String content = writer.toString();
+        assertTrue(content, content.contains("sonar.projectDescription=\\ \\u00dcbersicht: a=b #1\\\\c\\n\n"));
+
+        final Properties properties = new Properties();
+        properties.load(new StringReader(content));
+        assertEquals(description, properties.getProperty("sonar.projectDescription"));
+        assertEquals(baseLocation.getAbsolutePath(), properties.getProperty("sonar.projectBaseDir"));
+    }
+
+    /**
+     * Create a development component (spied to stub its description) with the given existing folders.
+     */
+    private DevelopmentComponent createComponent(final DevelopmentComponentType type, final String... folders) {
+        final DevelopmentComponent component =
+            Mockito.spy(new DevelopmentComponent("dc", "org.arachna", type));
+        compartment.add(component);
+
+        for (final String folder : folders) {
+            new File(baseLocation, folder).mkdirs();
+        }
+
+        Mockito.when(antHelper.getBaseLocation(component)).thenReturn(baseLocation.getAbsolutePath());
+
+        return component;
+    }
+
+    private Map<String, String> createProperties(final DevelopmentComponent component) {
+        return generator.createProperties(component, new DevelopmentComponentTiming(component));
+    }
+}
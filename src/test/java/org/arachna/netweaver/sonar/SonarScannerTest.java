@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import hudson.EnvVars;
+import hudson.Functions;
+import hudson.Launcher;
+import hudson.util.StreamTaskListener;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unittest for {@link SonarScanner} using a shell script recording its arguments in place of the sonar scanner CLI.
+ *
+ * @author Dirk Weigenand
+ */
+public class SonarScannerTest {
+    /**
+     * temporary folder holding the stub scanner and its output.
+     */
+    private File folder;
+
+    /**
+     * the <code>sonar-project.properties</code> passed to the scanner.
+     */
+    private File settings;
+
+    /**
+     * file the stub scanner writes its arguments to.
+     */
+    private File arguments;
+
+    @Before
+    public void setUp() throws IOException {
+        Assume.assumeFalse(Functions.isWindows());
+
+        folder = Files.createTempDirectory("sonar-scanner").toFile();
+        settings = new File(folder, "sonar-project.properties");
+        Files.write(settings.toPath(), "sonar.projectKey=example.com:dc\n".getBytes("ISO-8859-1"));
+        arguments = new File(folder, "arguments");
+    }
+
+    @After
+    public void tearDown() {
+        if (folder != null) {
+            for (final File file : folder.listFiles()) {
+                file.delete();
+            }
+
+            folder.delete();
+        }
+    }
+
+    @Test
+    public void testScannerIsCalledWithSettingsAndProjectVersion() throws Exception {
+        assertTrue(createScanner(0).run(createLauncher(), StreamTaskListener.fromStdout(), new EnvVars(), settings,
+            Collections.singletonMap("sonar.projectVersion", "1.0.42-SNAPSHOT"), "-Xmx512m"));
+
+        final List<String> lines = Files.readAllLines(arguments.toPath(), Charset.forName("UTF-8"));
+        assertEquals("-Dproject.settings=" + settings.getAbsolutePath(), lines.get(0));
+        assertEquals("-Dsonar.projectVersion=1.0.42-SNAPSHOT", lines.get(1));
+        assertEquals("-Xmx512m", lines.get(2));
+    }
+
+    @Test
+    public void testFailedAnalysisIsReported() throws Exception {
+        assertFalse(createScanner(2).run(createLauncher(), StreamTaskListener.fromStdout(), new EnvVars(), settings,
+            Collections.<String, String> emptyMap(), ""));
+    }
+
+    private Launcher createLauncher() {
+        return new Launcher.LocalLauncher(StreamTaskListener.fromStdout());
+    }
+
+    private SonarScanner createScanner(final int exitCode) throws IOException {
+        final File script = new File(folder, "sonar-scanner");
+        final String content =
+            String.format("#!/bin/sh%nfor a in \"$@\"; do echo \"$a\"; done > '%s'%necho \"$SONAR_SCANNER_OPTS\" >> '%s'%n"
+                + "exit %d%n", arguments.getAbsolutePath(), arguments.getAbsolutePath(), exitCode);
+        Files.write(script.toPath(), content.getBytes("UTF-8"));
+        script.setExecutable(true);
+
+        return new SonarScanner(script.getAbsolutePath());
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Unittest for {@link SonarTrendAction} using a chain of mocked builds.
+ *
+ * @author Dirk Weigenand
+ */
+public class SonarTrendActionTest {
+    @Test
+    public void testBuildsWithoutMetricsAreSkipped() {
+        final List<AbstractBuild<?, ?>> builds = createBuilds(5);
+        addMetrics(builds.get(0), SonarMetricsActionTest.createTiming("dc", 10));
+        addMetrics(builds.get(3), SonarMetricsActionTest.createTiming("dc", 20));
+
+        final SonarTrendAction action = new SonarTrendAction(createProject(builds));
+
+        assertEquals(Arrays.asList(builds.get(0), builds.get(3)), action.getBuilds());
+        assertNull(action.getTiming(builds.get(1), "org.arachna:dc"));
+        assertEquals(20, action.getTiming(builds.get(3), "org.arachna:dc").getTotal());
+    }
+
+    @Test
+    public void testOnlyLastBuildsWithMetricsAreShown() {
+        final List<AbstractBuild<?, ?>> builds = createBuilds(SonarTrendAction.NUMBER_OF_BUILDS + 5);
+
+        for (final AbstractBuild<?, ?> build : builds) {
+            addMetrics(build, SonarMetricsActionTest.createTiming("dc", 10));
+        }
+
+        final SonarTrendAction action = new SonarTrendAction(createProject(builds));
+
+        assertEquals(builds.subList(0, SonarTrendAction.NUMBER_OF_BUILDS), action.getBuilds());
+        assertSame(action.getBuilds(), action.getBuilds());
+    }
+
+    @Test
+    public void testScanIsBoundedByMaxExaminedBuilds() {
+        final List<AbstractBuild<?, ?>> builds = createBuilds(SonarTrendAction.MAX_EXAMINED_BUILDS + 10);
+        addMetrics(builds.get(SonarTrendAction.MAX_EXAMINED_BUILDS + 5), SonarMetricsActionTest.createTiming("dc", 10));
+
+        final SonarTrendAction action = new SonarTrendAction(createProject(builds));
+
+        assertTrue(action.getBuilds().isEmpty());
+        assertTrue(action.getSlowestComponents().isEmpty());
+        verify(builds.get(SonarTrendAction.MAX_EXAMINED_BUILDS - 1)).getPreviousBuild();
+        verify(builds.get(SonarTrendAction.MAX_EXAMINED_BUILDS), never()).getAction(SonarMetricsAction.class);
+    }
+
+    @Test
+    public void testSlowestComponentsAreRankedByMaximum() {
+        final List<AbstractBuild<?, ?>> builds = createBuilds(2);
+        addMetrics(builds.get(0), SonarMetricsActionTest.createTiming("a", 10),
+            SonarMetricsActionTest.createTiming("b", 50));
+        addMetrics(builds.get(1), SonarMetricsActionTest.createTiming("a", 100),
+            SonarMetricsActionTest.createTiming("c", 30));
+
+        final SonarTrendAction action = new SonarTrendAction(createProject(builds));
+
+        assertEquals(Arrays.asList("org.arachna:a", "org.arachna:b", "org.arachna:c"),
+            action.getSlowestComponents());
+    }
+
+    @Test
+    public void testSlowestComponentsAreLimited() {
+        final List<AbstractBuild<?, ?>> builds = createBuilds(1);
+        final DevelopmentComponentTiming[] timings =
+            new DevelopmentComponentTiming[SonarTrendAction.NUMBER_OF_COMPONENTS + 5];
+
+        for (int i = 0; i < timings.length; i++) {
+            timings[i] = SonarMetricsActionTest.createTiming(String.format("dc%02d", i), i);
+        }
+
+        addMetrics(builds.get(0), timings);
+
+        final List<String> slowest = new SonarTrendAction(createProject(builds)).getSlowestComponents();
+
+        assertEquals(SonarTrendAction.NUMBER_OF_COMPONENTS, slowest.size());
+        assertEquals(String.format("org.arachna:dc%02d", timings.length - 1), slowest.get(0));
+    }
+
+    /**
+     * Create the given number of builds, latest first, each linked to its predecessor.
+     */
+    private List<AbstractBuild<?, ?>> createBuilds(final int count) {
+        final List<AbstractBuild<?, ?>> builds = new ArrayList<AbstractBuild<?, ?>>();
+
+        for (int i = 0; i < count; i++) {
+            final AbstractBuild<?, ?> build = mock(AbstractBuild.class);
+
+            if (i > 0) {
+                doReturn(build).when(builds.get(i - 1)).getPreviousBuild();
+            }
+
+            builds.add(build);
+        }
+
+        return builds;
+    }
+
+    private AbstractProject<?, ?> createProject(final List<AbstractBuild<?, ?>> builds) {
+        final AbstractProject<?, ?> project = mock(AbstractProject.class);
+        doReturn(builds.isEmpty() ? null : builds.get(0)).when(project).getLastBuild();
+
+        return project;
+    }
+
+    private void addMetrics(final AbstractBuild<?, ?> build, final DevelopmentComponentTiming... timings) {
+        doReturn(new SonarMetricsAction(Arrays.asList(timings), 0)).when(build).getAction(SonarMetricsAction.class);
+    }
+}
@@ -0,0 +1,123 @@
+/**
+ *
+ */
+package org.arachna.netweaver.sonar;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.arachna.ant.AntHelper;
+import org.arachna.netweaver.dc.types.DevelopmentComponent;
+import org.arachna.netweaver.dc.types.DevelopmentComponentType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+/**
+ * Unittest for {@link WorkspaceSnapshot}.
+ *
+ * @author Dirk Weigenand
+ */
+public class WorkspaceSnapshotTest {
+    /**
+     * base location of the development component.
+     */
+    private File baseLocation;
+
+    /**
+     * development component to take the snapshot of.
+     */
+    private DevelopmentComponent component;
+
+    /**
+     * Build helper.
+     */
+    private AntHelper antHelper;
+
+    /**
+     * instance under test.
+     */
+    private WorkspaceSnapshot snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        baseLocation = Files.createTempDirectory("snapshot").toFile();
+        component = new DevelopmentComponent("dc", "org.arachna", DevelopmentComponentType.Java);
+
+        createFile("src/packages/org/arachna/A.java");
+        createFile("src/packages/org/arachna/B.java");
+        createFile("src/packages0/C.java");
+        createFile("gen/default/public/api/lib/java/org.arachna~dc.jar");
+        createFile("gen/default/public/api/lib/java/readme.txt");
+
+        antHelper = Mockito.mock(AntHelper.class);
+        Mockito.when(antHelper.getBaseLocation(component)).thenReturn(baseLocation.getAbsolutePath());
+        Mockito.when(antHelper.getBaseLocation(component, "api")).thenReturn(
+            new File(baseLocation, "gen/default/public/api/lib/java").getAbsolutePath());
+        Mockito.when(antHelper.createSourceFileSets(component)).thenReturn(Arrays.asList("src/packages"));
+        snapshot = new WorkspaceSnapshot(antHelper);
+    }
+
+    @After
+    public void tearDown() {
+        delete(baseLocation);
+    }
+
+    @Test
+    public void testIsDirectory() {
+        assertTrue(snapshot.isDirectory(component, "src"));
+        assertTrue(snapshot.isDirectory(component, "src/packages/org"));
+        assertFalse(snapshot.isDirectory(component, "WebContent"));
+        assertFalse(snapshot.isDirectory(component, "src/packages/org/arachna/A.java"));
+    }
+
+    @Test
+    public void testGetFilesOfSourceFolders() {
+        assertEquals(
+            Arrays.asList(new File(baseLocation, "src/packages/org/arachna/A.java"), new File(baseLocation,
+                "src/packages/org/arachna/B.java")),
+            Arrays.asList(snapshot.getFiles(component, snapshot.getSourceFileSets(component)).toArray()));
+    }
+
+    @Test
+    public void testGetJars() {
+        assertEquals(Arrays.asList(new File(baseLocation, "gen/default/public/api/lib/java/org.arachna~dc.jar")),
+            snapshot.getJars(component, "api"));
+    }
+
+    @Test
+    public void testFolderIsWalkedOnce() throws IOException {
+        assertTrue(snapshot.isDirectory(component, "src"));
+        createFile("WebContent/index.html");
+
+        assertFalse(snapshot.isDirectory(component, "WebContent"));
+        snapshot.getSourceFileSets(component);
+        snapshot.getSourceFileSets(component);
+        Mockito.verify(antHelper, Mockito.times(1)).createSourceFileSets(component);
+    }
+
+    private void createFile(final String path) throws IOException {
+        final File file = new File(baseLocation, path);
+        file.getParentFile().mkdirs();
+        file.createNewFile();
+    }
+
+    private void delete(final File file) {
+        final File[] children = file.listFiles();
+
+        if (children != null) {
+            for (final File child : children) {
+                delete(child);
+            }
+        }
+
+        file.delete();
+    }
+}